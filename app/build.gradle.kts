@@ -8,6 +8,9 @@
 plugins {
     // Apply the application plugin to add support for building a CLI application in Java.
     application
+
+    // Adds the jmh source set and the jmh task running its benchmarks.
+    alias(libs.plugins.jmh)
 }
 
 repositories {
@@ -35,9 +38,21 @@ java {
 application {
     // Define the main class for the application.
     mainClass = "org.parser.App"
+    applicationDefaultJvmArgs = listOf("--add-modules=jdk.incubator.vector")
+}
+
+// The pattern search prefilter uses the incubating Vector API.
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.add("--add-modules=jdk.incubator.vector")
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    jvmArgsAppend.add("--add-modules=jdk.incubator.vector")
 }
 
 tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
     useJUnitPlatform()
+    jvmArgs("--add-modules=jdk.incubator.vector")
 }
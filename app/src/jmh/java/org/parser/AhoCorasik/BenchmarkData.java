@@ -0,0 +1,60 @@
+package org.parser.AhoCorasik;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Seeded dictionaries and texts, so every run measures the same input.
+ */
+final class BenchmarkData {
+    static final int TEXT_LENGTH = 4 << 20;
+
+    private static final String ASCII = "abcdefghijklmnopqrstuvwxyz";
+    private static final String UNICODE = "абвгдежзийклмнопрстуфхцчшщыэюя日本語文字列検索";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param size    number of distinct patterns
+     * @param unicode draw from Cyrillic and CJK chars instead of ASCII letters
+     * @return patterns of 4 to 12 chars
+     */
+    static String[] dictionary(int size, boolean unicode) {
+        String alphabet = unicode ? UNICODE : ASCII;
+        Random random = new Random(size);
+        Set<String> words = new LinkedHashSet<>();
+        while (words.size() < size) {
+            words.add(randomWord(random, alphabet, 4 + random.nextInt(9)));
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /**
+     * @param dense put a dictionary word between every two words of random
+     *              filler instead of relying on chance matches
+     * @return text of {@link #TEXT_LENGTH} chars over the dictionary's alphabet
+     */
+    static String text(String[] dictionary, boolean unicode, boolean dense) {
+        String alphabet = unicode ? UNICODE : ASCII;
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder(TEXT_LENGTH + 32);
+        while (text.length() < TEXT_LENGTH) {
+            text.append(randomWord(random, alphabet, 2 + random.nextInt(8))).append(' ');
+            if (dense) {
+                text.append(dictionary[random.nextInt(dictionary.length)]).append(' ');
+            }
+        }
+        text.setLength(TEXT_LENGTH);
+        return text.toString();
+    }
+
+    private static String randomWord(Random random, String alphabet, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; ++i) {
+            chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(chars);
+    }
+}
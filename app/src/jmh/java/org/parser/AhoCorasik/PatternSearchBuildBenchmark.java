@@ -0,0 +1,65 @@
+package org.parser.AhoCorasik;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction time of an automaton. The footprint of the built automaton is
+ * printed once per fork, next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatternSearchBuildBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int dictionarySize;
+
+    @Param({"false", "true"})
+    public boolean unicode;
+
+    @Param({"false", "true"})
+    public boolean ignoreCase;
+
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        words = BenchmarkData.dictionary(dictionarySize, unicode);
+    }
+
+    @TearDown(Level.Trial)
+    public void printFootprint() {
+        PatternSearch patternSearch = build();
+        System.out.printf("%n%d patterns: footprint %d bytes, %.1f bytes per pattern char%n", dictionarySize,
+                patternSearch.memoryFootprint(), (double) patternSearch.memoryFootprint() / chars());
+    }
+
+    @Benchmark
+    public PatternSearch build() {
+        return PatternSearch.builder().words(words).ignoreCase(ignoreCase).build();
+    }
+
+    private long chars() {
+        long chars = 0;
+        for (String word : words) {
+            chars += word.length();
+        }
+        return chars;
+    }
+}
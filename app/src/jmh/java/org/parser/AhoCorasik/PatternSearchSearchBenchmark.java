@@ -0,0 +1,79 @@
+package org.parser.AhoCorasik;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Search throughput. Every invocation searches a text of
+ * {@link BenchmarkData#TEXT_LENGTH} chars and counts as that many operations,
+ * so the score in ops/us is millions of chars per second, i.e. MB/s of ASCII
+ * text.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatternSearchSearchBenchmark {
+    @Param({"100", "10000"})
+    public int dictionarySize;
+
+    @Param({"false", "true"})
+    public boolean unicode;
+
+    @Param({"false", "true"})
+    public boolean dense;
+
+    @Param({"false", "true"})
+    public boolean prefilter;
+
+    private PatternSearch patternSearch;
+    private String text;
+    private int[] counts;
+    private final MatchCollector collector = new MatchCollector(1 << 16);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] words = BenchmarkData.dictionary(dictionarySize, unicode);
+        patternSearch = PatternSearch.builder().words(words).prefilter(prefilter).build();
+        text = BenchmarkData.text(words, unicode, dense);
+        counts = new int[words.length];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkData.TEXT_LENGTH)
+    public int countMatches() {
+        patternSearch.countMatches(text, counts);
+        return counts[0];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkData.TEXT_LENGTH)
+    public int collectMatches() {
+        collector.clear();
+        patternSearch.search(text, collector);
+        return collector.size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkData.TEXT_LENGTH)
+    public int leftmostLongest() {
+        collector.clear();
+        patternSearch.search(text, MatchKind.LEFTMOST_LONGEST, collector);
+        return collector.size();
+    }
+}
@@ -0,0 +1,78 @@
+package org.parser.core.lexic;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.parser.token.SymbolTable;
+
+/**
+ * Scanner throughput with and without the Vector API run skipping. Every
+ * invocation scans a source of {@link #SOURCE_LENGTH} chars and counts as
+ * that many operations, so the score in ops/us is MB/s of ASCII source.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScannerBenchmark {
+    static final int SOURCE_LENGTH = 2 << 20;
+
+    /**
+     * minified: no blanks, short names and numbers; indented: a statement
+     * per line behind 4 to 16 spaces; runs: long names, numbers and blanks
+     */
+    @Param({"minified", "indented", "runs"})
+    public String source;
+
+    @Param({"false", "true"})
+    public boolean vector;
+
+    private char[] chars;
+    private CharRuns runs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder(SOURCE_LENGTH + 128);
+        while (text.length() < SOURCE_LENGTH) {
+            switch (source) {
+                case "minified":
+                    text.append("var a").append(random.nextInt(100)).append('=').append(random.nextInt(100000))
+                            .append(";if(a>b){print x+y*z;}");
+                    break;
+                case "indented":
+                    text.append(" ".repeat(4 * (1 + random.nextInt(4)))).append("var counter")
+                            .append(random.nextInt(100)).append(" = ").append(random.nextInt(1000000)).append(";\n");
+                    break;
+                default:
+                    text.append("someVeryLongIdentifierName_").append(random.nextInt(1 << 20)).append(" ".repeat(20))
+                            .append(123456789L * random.nextInt(1000)).append("\t\t\t\t\t\t\t\t\n");
+                    break;
+            }
+        }
+        text.setLength(SOURCE_LENGTH);
+        chars = text.toString().toCharArray();
+        runs = vector ? CharRuns.INSTANCE : new CharRuns.Scalar();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SOURCE_LENGTH)
+    public int scanBuffer() {
+        return new Scanner(chars, new SymbolTable(), runs).scanBuffer().size();
+    }
+}
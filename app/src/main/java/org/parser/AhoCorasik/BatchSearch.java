@@ -0,0 +1,144 @@
+package org.parser.AhoCorasik;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Runs one {@link PatternSearch} over many small documents on a fork-join
+ * pool.
+ * <p>
+ * Documents are read from the source in batches, every batch is searched by
+ * one pool task and its matches are handed to the sink on the calling thread,
+ * batch by batch as they complete. At most {@code maxPendingBatches} batches
+ * are in flight: when the limit is reached the caller delivers finished
+ * batches before reading more documents, so a slow sink slows down the
+ * reading instead of piling up results. The sink therefore needs no
+ * synchronization, but sees documents in completion order rather than source
+ * order.
+ */
+public class BatchSearch {
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final PatternSearch patternSearch;
+    private final ForkJoinPool pool;
+    private final int batchSize;
+    private final int maxPendingBatches;
+
+    public BatchSearch(PatternSearch patternSearch) {
+        this(patternSearch, ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE, 4 * ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    public BatchSearch(PatternSearch patternSearch, ForkJoinPool pool, int batchSize, int maxPendingBatches) {
+        if (batchSize < 1 || maxPendingBatches < 1) {
+            throw new IllegalArgumentException("Batch size and pending batches must be positive");
+        }
+        this.patternSearch = patternSearch;
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.maxPendingBatches = maxPendingBatches;
+    }
+
+    /**
+     * @param documents texts by document id
+     * @return matches of every document by its id
+     * @throws InterruptedException if interrupted while waiting for a batch
+     */
+    public <K> Map<K, MatchCollector> search(Map<K, ? extends CharSequence> documents) throws InterruptedException {
+        Map<K, MatchCollector> res = new HashMap<>();
+        search(documents.entrySet().iterator(), Map.Entry::getValue, (entry, matches) -> res.put(entry.getKey(), matches));
+        return res;
+    }
+
+    public <D> void search(Stream<D> documents, Function<? super D, ? extends CharSequence> text,
+                           BiConsumer<? super D, MatchCollector> sink) throws InterruptedException {
+        search(documents.iterator(), text, sink);
+    }
+
+    /**
+     * Searches every document and passes it to the sink together with its
+     * matches. A failure of a search task is rethrown here once the batches
+     * already submitted have finished.
+     *
+     * @param documents source, read on the calling thread
+     * @param text      extracts the text of a document, called on pool threads
+     * @param sink      receives every document with its matches on the calling
+     *                  thread; the collector is owned by the sink
+     * @throws InterruptedException if interrupted while waiting for a batch
+     */
+    public <D> void search(Iterator<D> documents, Function<? super D, ? extends CharSequence> text,
+                           BiConsumer<? super D, MatchCollector> sink) throws InterruptedException {
+        BlockingQueue<Batch<D>> done = new LinkedBlockingQueue<>();
+        RuntimeException failure = null;
+        int pending = 0;
+        while (documents.hasNext() && failure == null) {
+            List<D> batch = new ArrayList<>(batchSize);
+            while (batch.size() < batchSize && documents.hasNext()) {
+                batch.add(documents.next());
+            }
+            Batch<D> task = new Batch<>(batch);
+            pool.execute(() -> task.run(text, done));
+            ++pending;
+            for (Batch<D> finished = done.poll(); finished != null || pending == maxPendingBatches;
+                 finished = done.poll()) {
+                failure = deliver(finished != null ? finished : done.take(), sink, failure);
+                --pending;
+            }
+        }
+        for (; pending > 0; --pending) {
+            failure = deliver(done.take(), sink, failure);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static <D> RuntimeException deliver(Batch<D> batch, BiConsumer<? super D, MatchCollector> sink,
+                                                RuntimeException failure) {
+        if (failure != null) {
+            return failure;
+        }
+        if (batch.failure != null) {
+            return batch.failure;
+        }
+        for (int i = 0; i < batch.documents.size(); ++i) {
+            sink.accept(batch.documents.get(i), batch.matches[i]);
+        }
+        return null;
+    }
+
+    private class Batch<D> {
+        private final List<D> documents;
+        private final MatchCollector[] matches;
+        private RuntimeException failure;
+
+        private Batch(List<D> documents) {
+            this.documents = documents;
+            this.matches = new MatchCollector[documents.size()];
+        }
+
+        private void run(Function<? super D, ? extends CharSequence> text, BlockingQueue<Batch<D>> done) {
+            try {
+                for (int i = 0; i < matches.length; ++i) {
+                    matches[i] = new MatchCollector(4);
+                    patternSearch.search(text.apply(documents.get(i)), matches[i]);
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            } catch (Error e) {
+                failure = new CompletionException(e);
+            } finally {
+                done.add(this);
+            }
+        }
+    }
+}
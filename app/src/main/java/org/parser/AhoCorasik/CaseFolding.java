@@ -0,0 +1,61 @@
+package org.parser.AhoCorasik;
+
+/**
+ * Simple one-to-one Unicode case folding of BMP chars: a char folds to
+ * {@code toLowerCase(toUpperCase(ch))}, which puts e.g. {@code 'k'}, {@code 'K'}
+ * and the Kelvin sign into one class. Multi-char foldings such as
+ * sharp s to {@code "ss"} are not applied.
+ */
+final class CaseFolding {
+    private static final int ABC = 65536;
+
+    private CaseFolding() {
+    }
+
+    static char fold(char ch) {
+        return Tables.FOLD[ch];
+    }
+
+    static char foldAscii(char ch) {
+        return ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+    }
+
+    /**
+     * @param folded a folded char
+     * @return every char folding to {@code folded}, {@code folded} included
+     */
+    static char[] variants(char folded) {
+        char[] variants = new char[Tables.classStart[folded + 1] - Tables.classStart[folded]];
+        System.arraycopy(Tables.classChars, Tables.classStart[folded], variants, 0, variants.length);
+        return variants;
+    }
+
+    static char[] asciiVariants(char folded) {
+        return folded >= 'a' && folded <= 'z' ? new char[]{folded, (char) (folded - ('a' - 'A'))} : new char[]{folded};
+    }
+
+    /**
+     * Built on first use only, the classes are stored as CSR slices keyed by
+     * the folded char.
+     */
+    private static class Tables {
+        private static final char[] FOLD = new char[ABC];
+        private static final int[] classStart = new int[ABC + 1];
+        private static final char[] classChars = new char[ABC];
+
+        static {
+            for (int ch = 0; ch < ABC; ++ch) {
+                FOLD[ch] = Character.toLowerCase(Character.toUpperCase((char) ch));
+                ++classStart[FOLD[ch] + 1];
+            }
+            for (int ch = 0; ch < ABC; ++ch) {
+                classStart[ch + 1] += classStart[ch];
+            }
+            int[] fill = new int[ABC];
+            System.arraycopy(classStart, 0, fill, 0, ABC);
+            for (int ch = 0; ch < ABC; ++ch) {
+                classChars[fill[FOLD[ch]]++] = (char) ch;
+            }
+        }
+    }
+}
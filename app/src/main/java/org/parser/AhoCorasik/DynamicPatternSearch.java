@@ -0,0 +1,262 @@
+package org.parser.AhoCorasik;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A pattern set that can change while it is being searched.
+ * <p>
+ * The patterns live in a stack of levels, each an automaton over a part of
+ * the set: the initial patterns form the bottom level and every addition
+ * pushes a new level holding just the added patterns. Whenever a level is not
+ * at least {@link #LEVEL_RATIO} times larger than the one above it, the two
+ * are merged into one. Level sizes thus grow geometrically downwards, there
+ * are logarithmically many of them, and a pattern is rebuilt only each time
+ * it moves a level down, so an update costs amortized
+ * {@code O(added chars * log(total chars))} instead of a rebuild of all added
+ * patterns.
+ * <p>
+ * Removing a pattern only marks its id as removed in its level. Once a
+ * quarter of a level is removed, that level alone is rebuilt.
+ * <p>
+ * Every update publishes a new immutable {@link Snapshot} with a single
+ * volatile write. Searchers take a snapshot and never block; writers are
+ * serialized.
+ */
+public class DynamicPatternSearch {
+    private static final int LEVEL_RATIO = 2;
+    private static final int REMOVED_RATIO = 4;
+
+    private final List<Level> levels = new ArrayList<>();
+    private long version;
+    private volatile Snapshot snapshot;
+
+    public DynamicPatternSearch(String[] words) {
+        levels.add(new Level(new LinkedHashSet<>(Arrays.asList(Optional.ofNullable(words).orElse(new String[]{})))));
+        publish();
+    }
+
+    /**
+     * @return the current version of the pattern set
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    public Map<String, List<Integer>> search(String text) {
+        return snapshot.search(text);
+    }
+
+    public boolean search(CharSequence text, MatchListener listener) {
+        return snapshot.search(text, listener);
+    }
+
+    /**
+     * Adds the patterns that are not in the set yet and publishes the result.
+     *
+     * @param words patterns to add
+     */
+    public synchronized void add(String... words) {
+        Set<String> added = new LinkedHashSet<>();
+        for (String word : words) {
+            if (!contains(word)) {
+                added.add(word);
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        levels.add(new Level(added));
+        for (int top = levels.size() - 1; top > 0 && levels.get(top - 1).chars < LEVEL_RATIO * levels.get(top).chars; --top) {
+            Set<String> merged = levels.get(top - 1).live();
+            merged.addAll(levels.remove(top).live());
+            levels.set(top - 1, new Level(merged));
+        }
+        publish();
+    }
+
+    /**
+     * Removes the patterns that are in the set and publishes the result.
+     *
+     * @param words patterns to remove
+     */
+    public synchronized void remove(String... words) {
+        boolean changed = false;
+        for (String word : words) {
+            for (int i = 0; i < levels.size(); ++i) {
+                Level level = levels.get(i);
+                if (level.remove(word)) {
+                    if (level.removed.cardinality() > level.words.length / REMOVED_RATIO) {
+                        rebuild(i);
+                    }
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        if (changed) {
+            publish();
+        }
+    }
+
+    public synchronized boolean contains(String word) {
+        for (Level level : levels) {
+            if (level.contains(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rebuild(int index) {
+        Set<String> live = levels.get(index).live();
+        if (live.isEmpty() && index > 0) {
+            levels.remove(index);
+        } else {
+            levels.set(index, new Level(live));
+        }
+    }
+
+    private void publish() {
+        int count = levels.size();
+        PatternSearch[] searches = new PatternSearch[count];
+        BitSet[] removed = new BitSet[count];
+        for (int i = 0; i < count; ++i) {
+            searches[i] = levels.get(i).search;
+            removed[i] = (BitSet) levels.get(i).removed.clone();
+        }
+        snapshot = new Snapshot(++version, searches, removed);
+    }
+
+    /**
+     * Patterns of one level, writer side. Only {@link #removed} changes after
+     * construction; snapshots get a copy of it.
+     */
+    private static class Level {
+        private final String[] words;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final PatternSearch search;
+        private final BitSet removed;
+        private final long chars;
+
+        private Level(Set<String> words) {
+            this.words = words.toArray(new String[0]);
+            long total = 0;
+            for (int id = 0; id < this.words.length; ++id) {
+                ids.put(this.words[id], id);
+                total += this.words[id].length();
+            }
+            this.chars = total;
+            this.search = new PatternSearch(this.words);
+            this.removed = new BitSet(this.words.length);
+        }
+
+        private boolean contains(String word) {
+            Integer id = ids.get(word);
+            return id != null && !removed.get(id);
+        }
+
+        private boolean remove(String word) {
+            if (!contains(word)) {
+                return false;
+            }
+            removed.set(ids.get(word));
+            return true;
+        }
+
+        private Set<String> live() {
+            Set<String> live = new LinkedHashSet<>();
+            for (int id = 0; id < words.length; ++id) {
+                if (!removed.get(id)) {
+                    live.add(words[id]);
+                }
+            }
+            return live;
+        }
+    }
+
+    /**
+     * Immutable version of the pattern set. Pattern ids are stable within a
+     * snapshot only: they number the patterns of all levels, bottom first.
+     */
+    public static class Snapshot {
+        private final long version;
+        private final PatternSearch[] searches;
+        private final BitSet[] removed;
+        private final int[] firstIds;
+
+        private Snapshot(long version, PatternSearch[] searches, BitSet[] removed) {
+            this.version = version;
+            this.searches = searches;
+            this.removed = removed;
+            this.firstIds = new int[searches.length + 1];
+            for (int i = 0; i < searches.length; ++i) {
+                firstIds[i + 1] = firstIds[i] + searches[i].getWordsCount();
+            }
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public int getWordsCount() {
+            return firstIds[searches.length];
+        }
+
+        public String getWord(int patternId) {
+            int level = searches.length - 1;
+            while (firstIds[level] > patternId) {
+                --level;
+            }
+            return searches[level].getWord(patternId - firstIds[level]);
+        }
+
+        public Map<String, List<Integer>> search(String text) {
+            Map<String, List<Integer>> res = new HashMap<>();
+            search(Optional.ofNullable(text).orElse(""), (patternId, start, end) -> {
+                res.computeIfAbsent(getWord(patternId), word -> new ArrayList<>()).add(start);
+                return true;
+            });
+            return res;
+        }
+
+        /**
+         * Runs the automata of all levels over the text in lockstep, so
+         * matches still come in order of end offset. Removed patterns are
+         * skipped.
+         *
+         * @return {@code false} if the listener stopped the search
+         */
+        public boolean search(CharSequence text, MatchListener listener) {
+            int count = searches.length;
+            MatchListener[] listeners = new MatchListener[count];
+            for (int i = 0; i < count; ++i) {
+                BitSet levelRemoved = removed[i];
+                int firstId = firstIds[i];
+                listeners[i] = (patternId, start, end) ->
+                        levelRemoved.get(patternId) || listener.onMatch(firstId + patternId, start, end);
+            }
+            if (count == 1) {
+                return searches[0].search(text, removed[0].isEmpty() ? listener : listeners[0]);
+            }
+            int[] states = new int[count];
+            for (int i = 0, len = text.length(); i < len; ++i) {
+                char ch = text.charAt(i);
+                for (int k = 0; k < count; ++k) {
+                    states[k] = searches[k].nextState(states[k], ch);
+                    if (!searches[k].report(states[k], i + 1, listeners[k])) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
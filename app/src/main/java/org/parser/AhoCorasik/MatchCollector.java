@@ -0,0 +1,68 @@
+package org.parser.AhoCorasik;
+
+import java.util.Arrays;
+
+/**
+ * Collects matches into growable primitive arrays. A collector can be
+ * {@link #clear() cleared} and reused, so a warmed-up collector does not
+ * allocate at all.
+ */
+public class MatchCollector implements MatchListener {
+    private int[] patternIds;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+
+    public MatchCollector() {
+        this(16);
+    }
+
+    public MatchCollector(int capacity) {
+        capacity = Math.max(1, capacity);
+        this.patternIds = new int[capacity];
+        this.starts = new int[capacity];
+        this.ends = new int[capacity];
+    }
+
+    @Override
+    public boolean onMatch(int patternId, int start, int end) {
+        if (size == patternIds.length) {
+            int capacity = size * 2;
+            patternIds = Arrays.copyOf(patternIds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        patternIds[size] = patternId;
+        starts[size] = start;
+        ends[size] = end;
+        ++size;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPatternId(int index) {
+        return patternIds[checkIndex(index)];
+    }
+
+    public int getStart(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    public int getEnd(int index) {
+        return ends[checkIndex(index)];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Match index " + index + " out of " + size);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,27 @@
+package org.parser.AhoCorasik;
+
+/**
+ * Which matches a {@link PatternSearch} search reports.
+ */
+public enum MatchKind {
+    /**
+     * Every occurrence of every pattern, overlapping ones included.
+     */
+    ALL,
+    /**
+     * Scans left to right and reports the first match to end, the longest
+     * pattern ending there winning, then continues after it. Matches never
+     * overlap and nothing is rescanned.
+     */
+    NON_OVERLAPPING,
+    /**
+     * Reports the match starting leftmost, the pattern given first winning
+     * among those starting at the same offset, then continues after it.
+     */
+    LEFTMOST_FIRST,
+    /**
+     * Reports the match starting leftmost, the longest pattern winning among
+     * those starting at the same offset, then continues after it.
+     */
+    LEFTMOST_LONGEST
+}
@@ -0,0 +1,12 @@
+package org.parser.AhoCorasik;
+
+/**
+ * Receives matches of an in-memory {@link PatternSearch} search. Offsets are
+ * char (or byte) positions in the searched text, {@code end} is exclusive.
+ */
+public interface MatchListener {
+    /**
+     * @return {@code false} to stop the search
+     */
+    boolean onMatch(int patternId, int start, int end);
+}
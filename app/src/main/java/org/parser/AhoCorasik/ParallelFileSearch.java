@@ -0,0 +1,132 @@
+package org.parser.AhoCorasik;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Searches a file with a {@link PatternSearch} on several cores.
+ * <p>
+ * The file is split into segments, one per worker. Every segment is memory
+ * mapped together with the {@code maxWordLength - 1} bytes preceding it, so a
+ * match crossing a segment boundary is seen in full by the segment it ends in;
+ * a segment keeps only the matches ending inside it, which makes the merged
+ * result free of duplicates. Offsets are byte offsets: a UTF-8 automaton (see
+ * {@link PatternSearch.Builder#utf8(boolean)}) searches the file as UTF-8, a
+ * char automaton reads every byte as one ISO-8859-1 char.
+ */
+public class ParallelFileSearch {
+    private static final long MIN_SEGMENT_SIZE = 1 << 20;
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final PatternSearch patternSearch;
+    private final ForkJoinPool pool;
+
+    public ParallelFileSearch(PatternSearch patternSearch) {
+        this(patternSearch, ForkJoinPool.commonPool());
+    }
+
+    public ParallelFileSearch(PatternSearch patternSearch, ForkJoinPool pool) {
+        this.patternSearch = patternSearch;
+        this.pool = pool;
+    }
+
+    /**
+     * @param file file to search
+     * @return all matches ordered by start offset, then by pattern id
+     * @throws IOException if the file cannot be mapped
+     */
+    public List<PatternMatch> search(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long segments = Math.max(1, Math.min(pool.getParallelism(), size / MIN_SEGMENT_SIZE));
+            return search(channel, (int) segments);
+        }
+    }
+
+    List<PatternMatch> search(Path file, int segments) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return search(channel, segments);
+        }
+    }
+
+    private List<PatternMatch> search(FileChannel channel, int segments) throws IOException {
+        long size = channel.size();
+        long segmentSize = Math.min(MAX_SEGMENT_SIZE - patternSearch.getMaxWordLength(),
+                Math.max(1, (size + segments - 1) / segments));
+        List<SegmentTask> tasks = new ArrayList<>();
+        for (long from = 0; from < size; from += segmentSize) {
+            tasks.add(new SegmentTask(channel, from, Math.min(size, from + segmentSize)));
+        }
+        try {
+            return pool.invoke(new MergeTask(tasks));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class MergeTask extends RecursiveTask<List<PatternMatch>> {
+        private static final long serialVersionUID = 1L;
+        private final transient List<SegmentTask> tasks;
+
+        private MergeTask(List<SegmentTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<PatternMatch> compute() {
+            invokeAll(tasks);
+            List<PatternMatch> res = new ArrayList<>();
+            for (SegmentTask task : tasks) {
+                res.addAll(task.join());
+            }
+            res.sort(Comparator.comparingLong(PatternMatch::getStart).thenComparingInt(PatternMatch::getPatternId));
+            return res;
+        }
+    }
+
+    private class SegmentTask extends RecursiveTask<List<PatternMatch>> {
+        private static final long serialVersionUID = 1L;
+        private final transient FileChannel channel;
+        private final long from;
+        private final long to;
+
+        private SegmentTask(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<PatternMatch> compute() {
+            long mapFrom = Math.max(0, from - Math.max(0, patternSearch.getMaxWordLength() - 1));
+            MappedByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapFrom, to - mapFrom);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            List<PatternMatch> res = new ArrayList<>();
+            StreamMatchListener collector = (patternId, start, end) -> {
+                if (end > from) {
+                    res.add(new PatternMatch(patternId, start, end));
+                }
+                return true;
+            };
+            int state = 0;
+            for (int i = 0, len = buffer.limit(); i < len; ++i) {
+                state = patternSearch.nextState(state, (char) (buffer.get(i) & 0xFF));
+                patternSearch.reportStream(state, mapFrom + i + 1, collector);
+            }
+            return res;
+        }
+    }
+}
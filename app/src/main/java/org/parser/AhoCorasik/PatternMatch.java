@@ -0,0 +1,49 @@
+package org.parser.AhoCorasik;
+
+import java.util.Objects;
+
+public class PatternMatch {
+    private final int patternId;
+    private final long start;
+    private final long end;
+
+    public PatternMatch(int patternId, long start, long end) {
+        this.patternId = patternId;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int getPatternId() {
+        return patternId;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PatternMatch)) {
+            return false;
+        }
+        PatternMatch other = (PatternMatch) o;
+        return patternId == other.patternId && start == other.start && end == other.end;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(patternId, start, end);
+    }
+
+    @Override
+    public String toString() {
+        return patternId + " [" + start + ", " + end + ")";
+    }
+}
@@ -0,0 +1,153 @@
+package org.parser.AhoCorasik;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.function.IntFunction;
+
+/**
+ * Replaces the matches of a {@link PatternSearch} in a single pass over the
+ * text, whatever the number of patterns.
+ * <p>
+ * Which of overlapping matches is replaced follows the {@link MatchKind};
+ * {@link MatchKind#ALL} is rejected since overlapping matches cannot all be
+ * replaced. Streaming holds back only the last {@code maxWordLength - 1}
+ * chars, plus the text of a match whose kind still allows a better match to
+ * start before it, so memory does not depend on the input length.
+ */
+public class PatternReplacer {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final PatternSearch patternSearch;
+    private final IntFunction<? extends CharSequence> replacement;
+    private final MatchKind kind;
+
+    /**
+     * Replaces leftmost-longest matches with the replacement of their pattern.
+     *
+     * @param replacements replacement of every pattern, indexed by pattern id
+     */
+    public PatternReplacer(PatternSearch patternSearch, String[] replacements) {
+        this(patternSearch, patternId -> replacements[patternId], MatchKind.LEFTMOST_LONGEST);
+        if (replacements.length < patternSearch.getWordsCount()) {
+            throw new IllegalArgumentException("Need " + patternSearch.getWordsCount() + " replacements, got "
+                    + replacements.length);
+        }
+    }
+
+    /**
+     * @param replacement replacement of a match by pattern id, e.g. a constant
+     *                    mask for redaction
+     * @param kind        which of overlapping matches are replaced
+     */
+    public PatternReplacer(PatternSearch patternSearch, IntFunction<? extends CharSequence> replacement,
+                           MatchKind kind) {
+        if (patternSearch.isUtf8()) {
+            throw new IllegalArgumentException("UTF-8 automaton searches bytes only");
+        }
+        if (kind == MatchKind.ALL) {
+            throw new IllegalArgumentException("Overlapping matches cannot all be replaced");
+        }
+        this.patternSearch = patternSearch;
+        this.replacement = replacement;
+        this.kind = kind;
+    }
+
+    public String replace(CharSequence text) {
+        StringBuilder out = new StringBuilder(text.length());
+        replace(text, out);
+        return out.toString();
+    }
+
+    /**
+     * Appends the text with its matches replaced to {@code out}.
+     *
+     * @return number of replaced matches
+     */
+    public int replace(CharSequence text, StringBuilder out) {
+        int[] last = {0, 0};
+        patternSearch.search(text, 0, kind, (patternId, start, end) -> {
+            out.append(text, last[0], start).append(replacement.apply(patternId));
+            last[0] = end;
+            ++last[1];
+            return true;
+        });
+        out.append(text, last[0], text.length());
+        return last[1];
+    }
+
+    /**
+     * Streams the reader to the writer with its matches replaced, producing
+     * the same output as {@link #replace(CharSequence)} on the whole text.
+     *
+     * @param in  text source, not closed by this method
+     * @param out target, not closed or flushed by this method
+     * @return number of replaced matches
+     * @throws IOException if reading or writing fails
+     */
+    public long replace(Reader in, Writer out) throws IOException {
+        Window window = new Window(out, patternSearch.getMaxWordLength());
+        char[] chunk = new char[BUFFER_SIZE];
+        for (int read; (read = in.read(chunk)) != -1; ) {
+            window.text.append(chunk, 0, read);
+            window.process(false);
+        }
+        window.process(true);
+        return window.replaced;
+    }
+
+    /**
+     * Text not yet written. Starts at the first char that may still belong to
+     * a match.
+     */
+    private class Window implements MatchListener {
+        private final StringBuilder text = new StringBuilder();
+        private final Writer out;
+        private final int maxWordLength;
+        private boolean eof;
+        private int from;
+        private long replaced;
+        private IOException failure;
+
+        private Window(Writer out, int maxWordLength) {
+            this.out = out;
+            this.maxWordLength = maxWordLength;
+        }
+
+        /**
+         * Writes the matches that are final and the text before them. A match
+         * ending in the window is final for {@link MatchKind#NON_OVERLAPPING};
+         * for the leftmost kinds every match starting at or before it must
+         * have been seen, i.e. the window must reach its start plus the
+         * longest pattern. Then writes the text no match can start in any
+         * more and drops it.
+         */
+        private void process(boolean eof) throws IOException {
+            this.eof = eof;
+            from = 0;
+            patternSearch.search(text, 0, kind, this);
+            if (failure != null) {
+                throw failure;
+            }
+            int safe = eof ? text.length() : Math.max(from, text.length() - Math.max(0, maxWordLength - 1));
+            out.append(text, from, safe);
+            text.delete(0, safe);
+        }
+
+        @Override
+        public boolean onMatch(int patternId, int start, int end) {
+            if (!eof && kind != MatchKind.NON_OVERLAPPING && start + maxWordLength > text.length()) {
+                return false;
+            }
+            try {
+                out.append(text, from, start).append(replacement.apply(patternId));
+            } catch (IOException e) {
+                failure = e;
+                return false;
+            }
+            from = end;
+            ++replaced;
+            return true;
+        }
+    }
+}
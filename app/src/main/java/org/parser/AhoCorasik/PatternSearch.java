@@ -1,101 +1,1159 @@
 package org.parser.AhoCorasik;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
 import java.util.Arrays;
-import java.util.Queue;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
 
+/**
+ * Aho-Corasick automaton over UTF-16 chars, or over UTF-8 bytes when built
+ * with {@link Builder#utf8(boolean)}.
+ * <p>
+ * With {@link Builder#ignoreCase(boolean)} the patterns are case folded when
+ * the trie is built and every edge is duplicated for all chars folding to its
+ * label, so the text is matched case-insensitively without being folded.
+ * <p>
+ * Transitions are stored compactly: every state keeps its outgoing trie edges
+ * as a slice of two parallel arrays sorted by char (CSR layout). Missing
+ * transitions are resolved through the suffix links, so the table size is
+ * proportional to the number of trie edges rather than {@code states * 65536}.
+ * <p>
+ * The root and the shallowest states after it, which the search spends most
+ * of its time in, additionally get a dense row over the alphabet classes, i.e.
+ * the distinct chars of the patterns plus one class for every other char,
+ * within a budget proportional to the number of states. Such a row holds the
+ * complete transition function of the state, suffix links included, so
+ * stepping out of it is a single lookup. Case variants share a class.
+ * <p>
+ * Every state keeps the ids of the patterns ending exactly in it, plus a
+ * dictionary suffix link to the nearest state on its suffix chain that has
+ * patterns of its own. Reporting the matches at a position walks that chain,
+ * so it costs O(matches) regardless of the dictionary size.
+ * <p>
+ * All tables are int / char buffers. A built automaton keeps them on the heap;
+ * one {@link #save(Path) saved} to a file and {@link #load(Path) loaded} back
+ * searches straight from the memory-mapped file, so loading does not depend on
+ * the dictionary size.
+ */
 public class PatternSearch {
-    private final int ABC = 65536;
-    private final int[][] g;
-    private final int[] suffixArr;
-    private final int[] out;
-    private final int MAX_STATES;
+    private static final int ARRAY_HEADER = 16;
+    private static final int BUFFER_SIZE = 8192;
+    private static final int CHAR_ABC = 65536;
+    private static final int BYTE_ABC = 256;
+    private static final int MAGIC = 0x41435053;
+    private static final int VERSION = 2;
+    private static final int HEADER_INTS = 11;
+    private static final int DENSE_BUDGET_FACTOR = 2;
+    private static final int FLAG_UTF8 = 1;
+    private static final int FLAG_IGNORE_CASE = 2;
+    private static final int FLAG_PREFILTER = 4;
+    private static final MatchListener STOP = (patternId, start, end) -> false;
+
+    private final int ABC;
+    private final IntBuffer edgeStart;
+    private final CharBuffer edgeChars;
+    private final IntBuffer edgeTargets;
+    private final CharBuffer charClass;
+    private final int classes;
+    private final IntBuffer denseRow;
+    private final IntBuffer dense;
+    private final IntBuffer suffixArr;
+    private final IntBuffer dictLink;
+    private final IntBuffer depth;
+    private final IntBuffer outStart;
+    private final IntBuffer outIds;
     private final String[] words;
+    private final IntBuffer wordOffsets;
+    private final ByteBuffer wordData;
+    private final IntBuffer wordLengths;
+    private final int maxWordLength;
+    private final boolean utf8;
+    private final boolean ignoreCase;
+    private final Prefilter prefilter;
+    private final int states;
 
     public PatternSearch(String[] words) {
+        this(words, false, false, false);
+    }
+
+    private PatternSearch(String[] words, boolean utf8, boolean ignoreCase, boolean prefilter) {
         this.words = Optional.ofNullable(words).orElse(new String[]{});
-        this.MAX_STATES = Arrays.stream(this.words).map(String::length).reduce(Integer::sum).orElse(0) + 1;
-        this.g = new int[this.MAX_STATES][this.ABC];
-        this.suffixArr = new int[this.MAX_STATES];
-        this.out = new int[this.MAX_STATES];
+        this.utf8 = utf8;
+        this.ignoreCase = ignoreCase;
+        this.ABC = utf8 ? BYTE_ABC : CHAR_ABC;
+        String[] symbols = ignoreCase ? foldWords(this.words, utf8) : this.words;
+        symbols = utf8 ? toUtf8Symbols(symbols) : symbols;
+        int[] lengths = Arrays.stream(symbols).mapToInt(String::length).toArray();
+        this.wordLengths = IntBuffer.wrap(lengths);
+        this.wordOffsets = null;
+        this.wordData = null;
+        this.maxWordLength = Arrays.stream(lengths).max().orElse(0);
+
+        Trie trie = new Trie(Arrays.stream(lengths).sum() + 1, ABC);
+        int[] terminals = new int[symbols.length];
+        for (int i = 0, wordsCount = symbols.length; i < wordsCount; ++i) {
+            terminals[i] = trie.insert(symbols[i]);
+        }
+        this.states = trie.states;
+        int[] offsets = edgeOffsets(trie);
+        this.edgeStart = IntBuffer.wrap(offsets);
+        this.edgeChars = CharBuffer.allocate(offsets[states]);
+        this.edgeTargets = IntBuffer.allocate(offsets[states]);
+        this.suffixArr = IntBuffer.allocate(states);
+        this.dictLink = IntBuffer.allocate(states);
+        this.depth = IntBuffer.wrap(Arrays.copyOf(trie.depth, states));
+        int[] outOffsets = new int[states + 1];
+        int[] ids = new int[terminals.length];
+        for (int terminal : terminals) {
+            ++outOffsets[terminal + 1];
+        }
+        for (int state = 0; state < states; ++state) {
+            outOffsets[state + 1] += outOffsets[state];
+        }
+        int[] fill = Arrays.copyOf(outOffsets, states);
+        for (int i = 0; i < terminals.length; ++i) {
+            ids[fill[terminals[i]]++] = i;
+        }
+        this.outStart = IntBuffer.wrap(outOffsets);
+        this.outIds = IntBuffer.wrap(ids);
+
+        compact(trie);
 
-        buildStateMachine();
+        this.charClass = CharBuffer.allocate(ABC);
+        char[] representatives = new char[ABC];
+        this.classes = alphabetClasses(trie.root, representatives);
+        int denseStates = (int) Math.max(1, Math.min(states, (long) DENSE_BUDGET_FACTOR * states / classes));
+        int[] rows = new int[states];
+        Arrays.fill(rows, -1);
+        this.denseRow = IntBuffer.wrap(rows);
+        this.dense = IntBuffer.allocate(classes * denseStates);
+
+        buildStateMachine(trie.root, representatives);
+        this.prefilter = prefilter ? prefilter() : null;
     }
-        
-    private void buildStateMachine() {
-        for (int i = 0; i < MAX_STATES; ++i) {
-            Arrays.fill(g[i], -1);
+
+    /**
+     * Views the tables of a saved automaton, see {@link #save(WritableByteChannel)}
+     * for the layout.
+     */
+    private PatternSearch(ByteBuffer data) {
+        ByteBuffer buffer = data.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_INTS * Integer.BYTES
+                || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IllegalArgumentException("Not a PatternSearch automaton");
         }
-        int states = 1;
-        for (int i = 0, wordsCount = words.length; i < wordsCount; ++i) {
-            int curState = 0;
-            for (int j = 0, len = words[i].length(); j < len; ++j) {
-                int ch = words[i].charAt(j);
-                if (g[curState][ch] == -1) {
-                    g[curState][ch] = states++;
-                }
-                curState = g[curState][ch];
+        int flags = buffer.getInt(2 * Integer.BYTES);
+        this.utf8 = (flags & FLAG_UTF8) != 0;
+        this.ignoreCase = (flags & FLAG_IGNORE_CASE) != 0;
+        this.ABC = buffer.getInt(3 * Integer.BYTES);
+        this.states = buffer.getInt(4 * Integer.BYTES);
+        int edges = buffer.getInt(5 * Integer.BYTES);
+        int wordsCount = buffer.getInt(6 * Integer.BYTES);
+        this.maxWordLength = buffer.getInt(7 * Integer.BYTES);
+        int wordBytes = buffer.getInt(8 * Integer.BYTES);
+        this.classes = buffer.getInt(9 * Integer.BYTES);
+        int denseSize = buffer.getInt(10 * Integer.BYTES);
+        long size = savedSize(ABC, states, edges, wordsCount, wordBytes, denseSize);
+        if (ABC != CHAR_ABC && ABC != BYTE_ABC || size != buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupted PatternSearch automaton");
+        }
+
+        buffer.position(HEADER_INTS * Integer.BYTES);
+        this.edgeStart = ints(buffer, states + 1);
+        this.edgeTargets = ints(buffer, edges);
+        this.denseRow = ints(buffer, states);
+        this.dense = ints(buffer, denseSize);
+        this.suffixArr = ints(buffer, states);
+        this.dictLink = ints(buffer, states);
+        this.depth = ints(buffer, states);
+        this.outStart = ints(buffer, states + 1);
+        this.outIds = ints(buffer, wordsCount);
+        this.wordLengths = ints(buffer, wordsCount);
+        this.wordOffsets = ints(buffer, wordsCount + 1);
+        this.edgeChars = chars(buffer, edges);
+        this.charClass = chars(buffer, ABC);
+        this.wordData = buffer.slice();
+        this.words = new String[wordsCount];
+        this.prefilter = (flags & FLAG_PREFILTER) != 0 ? prefilter() : null;
+    }
+
+    /**
+     * The root's dense row is the first one, so the chars leaving the root
+     * are those whose class has a non-root target there.
+     *
+     * @return prefilter over the chars leaving the root, or {@code null} if it
+     *         cannot skip anything because the empty pattern matches everywhere
+     */
+    private Prefilter prefilter() {
+        if (utf8 || hasOutput(0)) {
+            return null;
+        }
+        StringBuilder firstChars = new StringBuilder();
+        for (int ch = 0; ch < ABC; ++ch) {
+            if (dense.get(charClass.get(ch)) > 0) {
+                firstChars.append((char) ch);
             }
-            out[curState] |= (1 << i);
         }
+        return Prefilter.of(firstChars.toString().toCharArray());
+    }
+
+    private static IntBuffer ints(ByteBuffer buffer, int count) {
+        IntBuffer ints = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).limit(count * Integer.BYTES).asIntBuffer();
+        buffer.position(buffer.position() + count * Integer.BYTES);
+        return ints;
+    }
+
+    private static CharBuffer chars(ByteBuffer buffer, int count) {
+        CharBuffer chars = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).limit(count * Character.BYTES).asCharBuffer();
+        buffer.position(buffer.position() + count * Character.BYTES);
+        return chars;
+    }
+
+    private static long savedSize(int abc, int states, int edges, int wordsCount, int wordBytes, int denseSize) {
+        long ints = HEADER_INTS + 2L * (states + 1) + edges + 4L * states + denseSize + 3L * wordsCount + 1;
+        return ints * Integer.BYTES + ((long) edges + abc) * Character.BYTES + wordBytes;
+    }
+
+    public static PatternSearch.Builder builder() {
+        return new PatternSearch.Builder();
+    }
+
+    /**
+     * Spells every word as its UTF-8 bytes, one byte per char.
+     */
+    private static String[] toUtf8Symbols(String[] words) {
+        String[] symbols = new String[words.length];
+        for (int i = 0; i < words.length; ++i) {
+            symbols[i] = new String(words[i].getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        }
+        return symbols;
+    }
 
-        Arrays.fill(suffixArr, -1);
-        Queue<Integer> q = new LinkedList<>();
-        for (int i = 0; i < ABC; ++i) {
-            if (g[0][i] == -1) {
-                g[0][i] = 0;
-            } else if (g[0][i] > 0) {
-                suffixArr[g[0][i]] = 0;
-                q.add(g[0][i]);
+    private static String[] foldWords(String[] words, boolean asciiOnly) {
+        String[] folded = new String[words.length];
+        for (int i = 0; i < words.length; ++i) {
+            char[] chars = words[i].toCharArray();
+            for (int j = 0; j < chars.length; ++j) {
+                chars[j] = asciiOnly ? CaseFolding.foldAscii(chars[j]) : CaseFolding.fold(chars[j]);
             }
+            folded[i] = new String(chars);
+        }
+        return folded;
+    }
+
+    private char fold(char ch) {
+        if (!ignoreCase) {
+            return ch;
         }
-        while (!q.isEmpty()) {
-            int curState = q.poll();
+        return utf8 ? CaseFolding.foldAscii(ch) : CaseFolding.fold(ch);
+    }
+
+    private char[] variants(char ch) {
+        if (!ignoreCase) {
+            return new char[]{ch};
+        }
+        return utf8 ? CaseFolding.asciiVariants(ch) : CaseFolding.variants(ch);
+    }
+
+    /**
+     * @return start of the edge slice of every state, root excluded, counting
+     *         all case variants of a label when case is ignored
+     */
+    private int[] edgeOffsets(Trie trie) {
+        int[] offsets = new int[states + 1];
+        for (int state = 1; state < states; ++state) {
+            int degree = 0;
+            for (int e = trie.firstEdge[state]; e != -1; e = trie.nextEdge[e]) {
+                degree += variants(trie.edgeChars[e]).length;
+            }
+            offsets[state + 1] = offsets[state] + degree;
+        }
+        return offsets;
+    }
+
+    /**
+     * Lays the trie edges of every non-root state out as consecutive slices of
+     * {@link #edgeChars} / {@link #edgeTargets}, sorted by char. Case variants
+     * of a label share the target of the folded label, in the trie's root row
+     * too.
+     */
+    private void compact(Trie trie) {
+        if (ignoreCase) {
             for (int ch = 0; ch < ABC; ++ch) {
-                if (g[curState][ch] == -1) {
-                    continue;
+                if (trie.root[ch] > 0 && fold((char) ch) == ch) {
+                    for (char variant : variants((char) ch)) {
+                        trie.root[variant] = trie.root[ch];
+                    }
+                }
+            }
+        }
+        long[] packed = new long[edgeChars.capacity()];
+        for (int state = 1; state < states; ++state) {
+            int pos = edgeStart.get(state);
+            for (int e = trie.firstEdge[state]; e != -1; e = trie.nextEdge[e]) {
+                for (char variant : variants(trie.edgeChars[e])) {
+                    packed[pos++] = ((long) variant << 32) | trie.edgeTargets[e];
+                }
+            }
+            Arrays.sort(packed, edgeStart.get(state), pos);
+        }
+        for (int i = 0; i < packed.length; ++i) {
+            edgeChars.put(i, (char) (packed[i] >>> 32));
+            edgeTargets.put(i, (int) packed[i]);
+        }
+    }
+
+    /**
+     * Numbers the chars used by any edge, case variants sharing the number of
+     * their folded char. Class 0 stands for all chars no pattern contains, if
+     * there are any.
+     *
+     * @param representatives receives a char of every class
+     * @return number of classes
+     */
+    private int alphabetClasses(int[] root, char[] representatives) {
+        boolean[] used = new boolean[ABC];
+        for (int ch = 0; ch < ABC; ++ch) {
+            used[ch] = root[ch] > 0;
+        }
+        for (int e = 0, edges = edgeChars.capacity(); e < edges; ++e) {
+            used[edgeChars.get(e)] = true;
+        }
+        int count = 0;
+        for (int ch = 0; ch < ABC; ++ch) {
+            if (!used[ch]) {
+                representatives[count++] = (char) ch;
+                break;
+            }
+        }
+        for (int ch = 0; ch < ABC; ++ch) {
+            if (used[ch] && fold((char) ch) == ch) {
+                representatives[count] = (char) ch;
+                charClass.put(ch, (char) count++);
+            }
+        }
+        for (int ch = 0; ch < ABC; ++ch) {
+            if (used[ch] && fold((char) ch) != ch) {
+                charClass.put(ch, charClass.get(fold((char) ch)));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Computes the suffix links in BFS order and fills the dense rows of the
+     * states visited first: the root's from the trie, the others' from their
+     * edges and the complete transitions of their shallower suffix links.
+     */
+    private void buildStateMachine(int[] root, char[] representatives) {
+        int[] q = new int[states];
+        int head = 0;
+        int tail = 0;
+        int nextRow = 0;
+        dictLink.put(0, -1);
+        q[tail++] = 0;
+        while (head < tail) {
+            int curState = q[head++];
+            if (nextRow < dense.capacity()) {
+                int row = nextRow;
+                nextRow += classes;
+                denseRow.put(curState, row);
+                for (int c = 0; c < classes; ++c) {
+                    dense.put(row + c, curState == 0 ? root[representatives[c]] : -1);
+                }
+                for (int e = edgeStart.get(curState), end = edgeStart.get(curState + 1); e < end; ++e) {
+                    dense.put(row + charClass.get(edgeChars.get(e)), edgeTargets.get(e));
+                }
+                for (int c = 0; c < classes; ++c) {
+                    if (dense.get(row + c) == -1) {
+                        dense.put(row + c, goTo(suffixArr.get(curState), representatives[c]));
+                    }
+                }
+            }
+            if (curState == 0) {
+                for (int c = 0; c < classes; ++c) {
+                    int child = dense.get(c);
+                    if (child > 0) {
+                        suffixArr.put(child, 0);
+                        dictLink.put(child, hasOutput(0) ? 0 : -1);
+                        q[tail++] = child;
+                    }
                 }
-                int suffLink = suffixArr[curState];
-                if (g[suffLink][ch] == -1) {
-                    suffLink = suffixArr[suffLink];
+                continue;
+            }
+            for (int e = edgeStart.get(curState), end = edgeStart.get(curState + 1); e < end; ++e) {
+                char ch = edgeChars.get(e);
+                if (fold(ch) != ch) {
+                    continue;
                 }
-                suffLink = g[suffLink][ch];
-                suffixArr[g[curState][ch]] = suffLink;
-                out[g[curState][ch]] |= out[suffLink];
-                q.add(g[curState][ch]);
+                int child = edgeTargets.get(e);
+                int suffLink = goTo(suffixArr.get(curState), ch);
+                suffixArr.put(child, suffLink);
+                dictLink.put(child, hasOutput(suffLink) ? suffLink : dictLink.get(suffLink));
+                q[tail++] = child;
+            }
+        }
+    }
+
+    private boolean hasOutput(int state) {
+        return outStart.get(state) != outStart.get(state + 1);
+    }
+
+    private int transition(int state, char ch) {
+        int lo = edgeStart.get(state);
+        int hi = edgeStart.get(state + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char midCh = edgeChars.get(mid);
+            if (midCh < ch) {
+                lo = mid + 1;
+            } else if (midCh > ch) {
+                hi = mid - 1;
+            } else {
+                return edgeTargets.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    int nextState(int curState, char ch) {
+        return goTo(curState, ch);
+    }
+
+    /**
+     * The transition the tables are built with; private, so the constructor
+     * calls nothing a subclass could override.
+     */
+    private int goTo(int curState, char ch) {
+        while (true) {
+            int row = denseRow.get(curState);
+            if (row != -1) {
+                return dense.get(row + charClass.get(ch));
+            }
+            int next = transition(curState, ch);
+            if (next != -1) {
+                return next;
             }
+            curState = suffixArr.get(curState);
         }
     }
 
-    private int nextState(int curState, int ch) {
-        while (g[curState][ch] == -1) {
-            curState = suffixArr[curState];
+    public String getWord(int patternId) {
+        String word = words[patternId];
+        if (word == null) {
+            int from = wordOffsets.get(patternId);
+            byte[] bytes = new byte[wordOffsets.get(patternId + 1) - from];
+            wordData.get(from, bytes);
+            word = new String(bytes, StandardCharsets.UTF_8);
+            words[patternId] = word;
         }
-        return g[curState][ch];
+        return word;
+    }
+
+    public int getWordsCount() {
+        return words.length;
+    }
+
+    public boolean isUtf8() {
+        return utf8;
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    public boolean isPrefiltered() {
+        return prefilter != null;
+    }
+
+    /**
+     * @return length of the longest pattern in alphabet symbols (chars, or
+     *         bytes for a UTF-8 automaton)
+     */
+    int getMaxWordLength() {
+        return maxWordLength;
+    }
+
+    /**
+     * Reports every pattern ending in {@code state} at the exclusive offset
+     * {@code end}.
+     *
+     * @return {@code false} if the listener asked to stop
+     */
+    boolean reportStream(int state, long end, StreamMatchListener listener) {
+        for (int s = hasOutput(state) ? state : dictLink.get(state); s != -1; s = dictLink.get(s)) {
+            for (int k = outStart.get(s), last = outStart.get(s + 1); k < last; ++k) {
+                int patternId = outIds.get(k);
+                if (!listener.onMatch(patternId, end - wordLengths.get(patternId), end)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimated size of the automaton tables in bytes, array headers included.
+     * For a loaded automaton the tables live in the mapped file rather than on
+     * the heap. The pattern strings themselves are not counted.
+     *
+     * @return footprint in bytes
+     */
+    public long memoryFootprint() {
+        return arrayBytes(edgeStart.capacity(), Integer.BYTES)
+                + arrayBytes(edgeChars.capacity(), Character.BYTES)
+                + arrayBytes(edgeTargets.capacity(), Integer.BYTES)
+                + arrayBytes(charClass.capacity(), Character.BYTES)
+                + arrayBytes(denseRow.capacity(), Integer.BYTES)
+                + arrayBytes(dense.capacity(), Integer.BYTES)
+                + arrayBytes(suffixArr.capacity(), Integer.BYTES)
+                + arrayBytes(dictLink.capacity(), Integer.BYTES)
+                + arrayBytes(depth.capacity(), Integer.BYTES)
+                + arrayBytes(outStart.capacity(), Integer.BYTES)
+                + arrayBytes(outIds.capacity(), Integer.BYTES)
+                + arrayBytes(wordLengths.capacity(), Integer.BYTES);
+    }
+
+    private static long arrayBytes(int length, int elementSize) {
+        return ARRAY_HEADER + (long) length * elementSize;
     }
 
     public Map<String, List<Integer>> search(String text) {
         Map<String, List<Integer>> res = new HashMap<>();
-        text = Optional.ofNullable(text).orElse("");
+        search(Optional.ofNullable(text).orElse(""), collector(res));
+        return res;
+    }
+
+    /**
+     * Hands every match to the listener as soon as it is found, in order of
+     * end offset. Nothing is allocated per match.
+     *
+     * @param text     text to search
+     * @param listener receives pattern id, start and exclusive end of a match
+     * @return {@code false} if the listener stopped the search
+     */
+    public boolean search(CharSequence text, MatchListener listener) {
+        requireCharMode();
+        if (prefilter != null) {
+            return searchFiltered(text, listener);
+        }
         int state = 0;
         for (int i = 0, len = text.length(); i < len; ++i) {
             state = nextState(state, text.charAt(i));
-            if (out[state] == 0) {
-                continue;
+            if (!report(state, i + 1, listener)) {
+                return false;
             }
-            for (int j = 0, wordsCount = words.length; j < wordsCount; ++j) {
-                if ((out[state] & (1 << j)) != 0) {
-                    List<Integer> indexes = res.getOrDefault(words[j], new ArrayList<>());
-                    indexes.add(i - words[j].length() + 1);
-                    res.putIfAbsent(words[j], indexes);
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if any pattern occurs in the text; the search stops
+     *         at the first state with output
+     */
+    public boolean containsAny(CharSequence text) {
+        return !search(text, STOP);
+    }
+
+    /**
+     * Byte flavour of {@link #containsAny(CharSequence)}, see
+     * {@link #search(ByteBuffer)}.
+     */
+    public boolean containsAny(ByteBuffer buffer) {
+        return !search(buffer, STOP);
+    }
+
+    /**
+     * @return number of occurrences of every pattern, indexed by pattern id
+     */
+    public int[] countMatches(CharSequence text) {
+        int[] counts = new int[words.length];
+        countMatches(text, counts);
+        return counts;
+    }
+
+    /**
+     * Adds the number of occurrences of every pattern to {@code counts},
+     * indexed by pattern id. Nothing is allocated per match.
+     *
+     * @throws IllegalArgumentException if {@code counts} is shorter than the
+     *                                  number of patterns
+     */
+    public void countMatches(CharSequence text, int[] counts) {
+        search(text, counter(counts));
+    }
+
+    /**
+     * Byte flavour of {@link #countMatches(CharSequence, int[])}, see
+     * {@link #search(ByteBuffer)}.
+     */
+    public void countMatches(ByteBuffer buffer, int[] counts) {
+        search(buffer, counter(counts));
+    }
+
+    private MatchListener counter(int[] counts) {
+        if (counts.length < words.length) {
+            throw new IllegalArgumentException("Need " + words.length + " counters, got " + counts.length);
+        }
+        return (patternId, start, end) -> {
+            ++counts[patternId];
+            return true;
+        };
+    }
+
+    /**
+     * Copies the text into a chunk buffer the prefilter can scan and runs the
+     * automaton only from the positions it stops at.
+     */
+    private boolean searchFiltered(CharSequence text, MatchListener listener) {
+        int len = text.length();
+        char[] chunk = new char[Math.min(len, BUFFER_SIZE)];
+        int state = 0;
+        for (int base = 0; base < len; base += chunk.length) {
+            int n = Math.min(chunk.length, len - base);
+            getChars(text, base, n, chunk);
+            for (int i = 0; i < n; ++i) {
+                if (state == 0) {
+                    i = prefilter.next(chunk, i, n);
+                    if (i == n) {
+                        break;
+                    }
+                }
+                state = nextState(state, chunk[i]);
+                if (!report(state, base + i + 1, listener)) {
+                    return false;
                 }
             }
         }
+        return true;
+    }
+
+    private static void getChars(CharSequence text, int from, int length, char[] chunk) {
+        if (text instanceof String) {
+            ((String) text).getChars(from, from + length, chunk, 0);
+        } else if (text instanceof StringBuilder) {
+            ((StringBuilder) text).getChars(from, from + length, chunk, 0);
+        } else {
+            for (int i = 0; i < length; ++i) {
+                chunk[i] = text.charAt(from + i);
+            }
+        }
+    }
+
+    public Map<String, List<Integer>> search(String text, MatchKind kind) {
+        Map<String, List<Integer>> res = new HashMap<>();
+        search(Optional.ofNullable(text).orElse(""), kind, collector(res));
+        return res;
+    }
+
+    /**
+     * Reports the matches selected by {@code kind}, in order of start offset.
+     * Matches a kind does not select are skipped during the walk rather than
+     * produced and filtered.
+     *
+     * @return {@code false} if the listener stopped the search
+     */
+    public boolean search(CharSequence text, MatchKind kind, MatchListener listener) {
+        requireCharMode();
+        return search(text, 0, kind, listener);
+    }
+
+    public Map<String, List<Integer>> search(byte[] bytes) {
+        return search(ByteBuffer.wrap(Optional.ofNullable(bytes).orElse(new byte[0])));
+    }
+
+    /**
+     * Searches the bytes between the buffer's position and limit without
+     * decoding them. Positions are byte offsets from the buffer's position,
+     * the buffer's position itself is left unchanged. A char automaton reads
+     * every byte as an ISO-8859-1 char.
+     *
+     * @param buffer UTF-8 encoded text
+     * @return start offsets of every match, by pattern
+     */
+    public Map<String, List<Integer>> search(ByteBuffer buffer) {
+        Map<String, List<Integer>> res = new HashMap<>();
+        search(buffer, collector(res));
         return res;
     }
+
+    /**
+     * Listener flavour of {@link #search(ByteBuffer)}.
+     *
+     * @return {@code false} if the listener stopped the search
+     */
+    public boolean search(ByteBuffer buffer, MatchListener listener) {
+        int state = 0;
+        for (int i = buffer.position(), from = i, len = buffer.limit(); i < len; ++i) {
+            state = nextState(state, (char) (buffer.get(i) & 0xFF));
+            if (!report(state, i - from + 1, listener)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Listener flavour of {@link #search(ByteBuffer)} reporting the matches
+     * selected by {@code kind}.
+     *
+     * @return {@code false} if the listener stopped the search
+     */
+    public boolean search(ByteBuffer buffer, MatchKind kind, MatchListener listener) {
+        return search(new ByteChars(buffer.slice()), 0, kind, listener);
+    }
+
+    boolean search(CharSequence text, int from, MatchKind kind, MatchListener listener) {
+        switch (kind) {
+            case ALL:
+                int state = 0;
+                for (int i = from, len = text.length(); i < len; ++i) {
+                    state = nextState(state, text.charAt(i));
+                    if (!report(state, i + 1, listener)) {
+                        return false;
+                    }
+                }
+                return true;
+            case NON_OVERLAPPING:
+                return searchNonOverlapping(text, from, listener);
+            default:
+                return searchLeftmost(text, from, kind == MatchKind.LEFTMOST_LONGEST, listener);
+        }
+    }
+
+    /**
+     * Reports the longest, then lowest id, pattern ending in the first state
+     * with output and restarts from the root.
+     */
+    private boolean searchNonOverlapping(CharSequence text, int from, MatchListener listener) {
+        int state = 0;
+        for (int i = from, len = text.length(); i < len; ++i) {
+            state = nextState(state, text.charAt(i));
+            int s = hasOutput(state) ? state : dictLink.get(state);
+            if (s != -1) {
+                int patternId = outIds.get(outStart.get(s));
+                if (!listener.onMatch(patternId, i + 1 - wordLengths.get(patternId), i + 1)) {
+                    return false;
+                }
+                state = 0;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the best match seen so far as a candidate. A later match can only
+     * start at or after {@code i + 1 - depth(state)}, so once that passes the
+     * candidate's start the candidate is final; it is reported and the walk
+     * restarts from the root at its end. Restarts rescan fewer chars than the
+     * longest pattern.
+     */
+    private boolean searchLeftmost(CharSequence text, int from, boolean longest, MatchListener listener) {
+        int len = text.length();
+        while (from < len) {
+            int bestId = -1;
+            int bestStart = 0;
+            int bestEnd = 0;
+            int state = 0;
+            for (int i = from; i < len; ++i) {
+                state = nextState(state, text.charAt(i));
+                if (bestId != -1 && i + 1 - depth.get(state) > bestStart) {
+                    break;
+                }
+                for (int s = hasOutput(state) ? state : dictLink.get(state); s != -1; s = dictLink.get(s)) {
+                    for (int k = outStart.get(s), last = outStart.get(s + 1); k < last; ++k) {
+                        int patternId = outIds.get(k);
+                        int start = i + 1 - wordLengths.get(patternId);
+                        if (bestId == -1 || start < bestStart
+                                || start == bestStart && (longest ? i + 1 > bestEnd : patternId < bestId)) {
+                            bestId = patternId;
+                            bestStart = start;
+                            bestEnd = i + 1;
+                        }
+                    }
+                }
+            }
+            if (bestId == -1) {
+                return true;
+            }
+            if (!listener.onMatch(bestId, bestStart, bestEnd)) {
+                return false;
+            }
+            from = bestEnd;
+        }
+        return true;
+    }
+
+    boolean report(int state, int end, MatchListener listener) {
+        for (int s = hasOutput(state) ? state : dictLink.get(state); s != -1; s = dictLink.get(s)) {
+            for (int k = outStart.get(s), last = outStart.get(s + 1); k < last; ++k) {
+                int patternId = outIds.get(k);
+                if (!listener.onMatch(patternId, end - wordLengths.get(patternId), end)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private MatchListener collector(Map<String, List<Integer>> res) {
+        return (patternId, start, end) -> {
+            res.computeIfAbsent(getWord(patternId), word -> new ArrayList<>()).add(start);
+            return true;
+        };
+    }
+
+    private void requireCharMode() {
+        if (utf8) {
+            throw new IllegalStateException("UTF-8 automaton searches bytes only");
+        }
+    }
+
+    /**
+     * Writes the automaton to a file, see {@link #save(WritableByteChannel)}.
+     *
+     * @param file target file, replaced if it exists
+     * @throws IOException if writing fails
+     */
+    public void save(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            save(channel);
+        }
+    }
+
+    /**
+     * Writes the automaton in a versioned little-endian binary layout: a
+     * header of {@code HEADER_INTS} ints (magic, version, flags, alphabet
+     * size, states, edges, patterns, longest pattern, pattern bytes, alphabet
+     * classes, dense table size), then the int tables edgeStart, edgeTargets,
+     * denseRow, dense, suffixArr, dictLink, depth, outStart, outIds,
+     * wordLengths and wordOffsets, then the char tables edgeChars and
+     * charClass and finally the patterns as concatenated UTF-8.
+     *
+     * @param channel target channel, not closed by this method
+     * @throws IOException if writing fails
+     */
+    public void save(WritableByteChannel channel) throws IOException {
+        byte[][] encoded = new byte[words.length][];
+        int[] offsets = new int[words.length + 1];
+        for (int i = 0; i < words.length; ++i) {
+            encoded[i] = getWord(i).getBytes(StandardCharsets.UTF_8);
+            offsets[i + 1] = offsets[i] + encoded[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        int flags = (utf8 ? FLAG_UTF8 : 0) | (ignoreCase ? FLAG_IGNORE_CASE : 0)
+                | (prefilter != null ? FLAG_PREFILTER : 0);
+        int[] header = {MAGIC, VERSION, flags, ABC, states, edgeChars.capacity(), words.length, maxWordLength,
+                offsets[words.length], classes, dense.capacity()};
+        for (IntBuffer ints : Arrays.asList(IntBuffer.wrap(header), edgeStart, edgeTargets, denseRow, dense,
+                suffixArr, dictLink, depth, outStart, outIds, wordLengths, IntBuffer.wrap(offsets))) {
+            for (int i = 0, len = ints.capacity(); i < len; ++i) {
+                if (buffer.remaining() < Integer.BYTES) {
+                    flush(buffer, channel);
+                }
+                buffer.putInt(ints.get(i));
+            }
+        }
+        for (CharBuffer chars : Arrays.asList(edgeChars, charClass)) {
+            for (int i = 0, len = chars.capacity(); i < len; ++i) {
+                if (buffer.remaining() < Character.BYTES) {
+                    flush(buffer, channel);
+                }
+                buffer.putChar(chars.get(i));
+            }
+        }
+        for (byte[] bytes : encoded) {
+            for (byte b : bytes) {
+                if (!buffer.hasRemaining()) {
+                    flush(buffer, channel);
+                }
+                buffer.put(b);
+            }
+        }
+        flush(buffer, channel);
+    }
+
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Memory-maps an automaton written by {@link #save(Path)}. Searches read
+     * the tables straight from the mapping and patterns are decoded only when
+     * first asked for, so loading takes the same time for any dictionary.
+     *
+     * @param file saved automaton
+     * @return automaton backed by the mapped file
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if the file is not a saved automaton
+     */
+    public static PatternSearch load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Automaton file too large: " + channel.size());
+            }
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Views an automaton written by {@link #save(WritableByteChannel)} between
+     * the buffer's position and limit without copying it.
+     *
+     * @param buffer saved automaton
+     * @return automaton backed by the buffer
+     * @throws IllegalArgumentException if the buffer is not a saved automaton
+     */
+    public static PatternSearch load(ByteBuffer buffer) {
+        return new PatternSearch(buffer);
+    }
+
+    /**
+     * Streams the reader through the automaton in fixed-size chunks. Memory use
+     * is bounded by the chunk size, not by the length of the input.
+     *
+     * @param reader   text source, not closed by this method
+     * @param listener receives every match with absolute char offsets
+     * @throws IOException if reading fails
+     */
+    public void search(Reader reader, StreamMatchListener listener) throws IOException {
+        Cursor cursor = cursor();
+        char[] buffer = new char[BUFFER_SIZE];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            if (!cursor.feed(buffer, 0, read, listener)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Decodes the channel with the given charset and streams it through the
+     * automaton, see {@link #search(Reader, StreamMatchListener)}. Offsets are
+     * char offsets in the decoded text.
+     *
+     * @param channel  byte source, not closed by this method
+     * @param charset  encoding of the channel content
+     * @param listener receives every match with absolute char offsets
+     * @throws IOException if reading fails
+     */
+    public void search(ReadableByteChannel channel, Charset charset, StreamMatchListener listener) throws IOException {
+        search(Channels.newReader(channel, charset.newDecoder(), BUFFER_SIZE), listener);
+    }
+
+    /**
+     * @return a new cursor positioned at the beginning of a stream
+     */
+    public Cursor cursor() {
+        requireCharMode();
+        return new Cursor();
+    }
+
+    /**
+     * Position of a streaming search: the automaton state and the number of
+     * chars consumed so far. Chunks fed one after another are searched as a
+     * single text, so matches spanning chunk boundaries are found.
+     */
+    public class Cursor {
+        private int state;
+        private long position;
+
+        private Cursor() {
+        }
+
+        /**
+         * @return {@code false} if the listener asked to stop, the rest of the
+         *         chunk is left unconsumed in that case
+         */
+        public boolean feed(char[] chunk, int offset, int length, StreamMatchListener listener) {
+            for (int i = offset, end = offset + length; i < end; ++i) {
+                if (state == 0 && prefilter != null) {
+                    int next = prefilter.next(chunk, i, end);
+                    position += next - i;
+                    i = next;
+                    if (i == end) {
+                        break;
+                    }
+                }
+                state = nextState(state, chunk[i]);
+                ++position;
+                if (!reportStream(state, position, listener)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+
+        public void reset() {
+            state = 0;
+            position = 0;
+        }
+    }
+
+    /**
+     * Bytes between a buffer's position and limit read as ISO-8859-1 chars.
+     */
+    private static class ByteChars implements CharSequence {
+        private final ByteBuffer buffer;
+
+        private ByteChars(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int length() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new ByteChars(buffer.slice(start, end - start));
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder(this).toString();
+        }
+    }
+
+    public static class Builder {
+        private String[] words;
+        private boolean utf8;
+        private boolean ignoreCase;
+        private boolean prefilter;
+
+        public Builder words(String[] words) {
+            this.words = words;
+            return this;
+        }
+
+        /**
+         * Compiles the patterns to their UTF-8 bytes so that byte buffers are
+         * searched directly, with a 256-wide alphabet and byte offsets.
+         */
+        public Builder utf8(boolean utf8) {
+            this.utf8 = utf8;
+            return this;
+        }
+
+        /**
+         * Matches case-insensitively using simple Unicode case folding of
+         * chars, see {@link CaseFolding}. A UTF-8 automaton folds ASCII letters
+         * only, since case variants of other chars may differ in their lead
+         * bytes or length.
+         */
+        public Builder ignoreCase(boolean ignoreCase) {
+            this.ignoreCase = ignoreCase;
+            return this;
+        }
+
+        /**
+         * Skips the text between matches with a {@link Prefilter} scanning for
+         * the first chars of the patterns, vectorized when the
+         * {@code jdk.incubator.vector} module is present. Pays off when
+         * matches are rare and few chars start a pattern. Char automata only,
+         * a UTF-8 automaton ignores it.
+         */
+        public Builder prefilter(boolean prefilter) {
+            this.prefilter = prefilter;
+            return this;
+        }
+
+        public PatternSearch build() {
+            return new PatternSearch(words, utf8, ignoreCase, prefilter);
+        }
+
+        /**
+         * @return value equal for builders producing the same automaton
+         */
+        Object key() {
+            return Arrays.asList(Arrays.asList(Optional.ofNullable(words).orElse(new String[]{}).clone()),
+                    utf8, ignoreCase, prefilter);
+        }
+    }
+
+    /**
+     * Build-time trie: a dense row for the root and singly linked edge lists
+     * for the other states. Discarded once the automaton is compacted.
+     */
+    private static class Trie {
+        private final int[] root;
+        private final int[] firstEdge;
+        private final int[] nextEdge;
+        private final char[] edgeChars;
+        private final int[] edgeTargets;
+        private final int[] depth;
+        private int states = 1;
+        private int edges;
+
+        private Trie(int maxStates, int abc) {
+            this.root = new int[abc];
+            this.firstEdge = new int[maxStates];
+            this.nextEdge = new int[maxStates];
+            this.edgeChars = new char[maxStates];
+            this.edgeTargets = new int[maxStates];
+            this.depth = new int[maxStates];
+            Arrays.fill(firstEdge, -1);
+        }
+
+        private int insert(String word) {
+            int curState = 0;
+            for (int j = 0, len = word.length(); j < len; ++j) {
+                curState = child(curState, word.charAt(j));
+            }
+            return curState;
+        }
+
+        private int child(int state, char ch) {
+            if (state == 0) {
+                if (root[ch] == 0) {
+                    depth[states] = 1;
+                    root[ch] = states++;
+                }
+                return root[ch];
+            }
+            for (int e = firstEdge[state]; e != -1; e = nextEdge[e]) {
+                if (edgeChars[e] == ch) {
+                    return edgeTargets[e];
+                }
+            }
+            int e = edges++;
+            edgeChars[e] = ch;
+            edgeTargets[e] = states;
+            nextEdge[e] = firstEdge[state];
+            firstEdge[state] = e;
+            depth[states] = depth[state] + 1;
+            return states++;
+        }
+    }
 }
@@ -0,0 +1,140 @@
+package org.parser.AhoCorasik;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Thread-safe LRU cache of compiled automata, keyed by the pattern list and
+ * the builder options. Pattern ids are positions in the list, so the same
+ * patterns in a different order are a different key.
+ * <p>
+ * The cache is bounded by the total {@link PatternSearch#memoryFootprint()} of
+ * its automata rather than by their count; the least recently used automata
+ * are evicted once the bound is exceeded. An automaton is built outside the
+ * cache lock, and concurrent requests for a key that is being built wait for
+ * that build instead of starting their own.
+ */
+public class PatternSearchCache {
+    private final long maxFootprint;
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long footprint;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maxFootprint bound of the total footprint of cached automata, in
+     *                     bytes
+     */
+    public PatternSearchCache(long maxFootprint) {
+        if (maxFootprint <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maxFootprint);
+        }
+        this.maxFootprint = maxFootprint;
+    }
+
+    public PatternSearch get(String[] words) {
+        return get(PatternSearch.builder().words(words));
+    }
+
+    /**
+     * Returns the cached automaton for the builder's patterns and options,
+     * building it on a miss. A request that waits for a concurrent build of
+     * the same key counts as a hit. A failed build is not cached.
+     *
+     * @param builder patterns and options of the automaton
+     * @return shared automaton
+     */
+    public PatternSearch get(PatternSearch.Builder builder) {
+        Object key = builder.key();
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null) {
+                ++hits;
+            } else {
+                ++misses;
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+        if (owner) {
+            build(key, entry, builder);
+        }
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private void build(Object key, Entry entry, PatternSearch.Builder builder) {
+        PatternSearch patternSearch;
+        try {
+            patternSearch = builder.build();
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.future.completeExceptionally(e);
+            return;
+        }
+        synchronized (this) {
+            entry.footprint = patternSearch.memoryFootprint();
+            if (entries.get(key) == entry) {
+                footprint += entry.footprint;
+                evict();
+            }
+        }
+        entry.future.complete(patternSearch);
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (footprint > maxFootprint && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.footprint > 0) {
+                it.remove();
+                footprint -= entry.footprint;
+                ++evictions;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        footprint = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return total footprint of the cached automata in bytes
+     */
+    public synchronized long getFootprint() {
+        return footprint;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    private static class Entry {
+        private final CompletableFuture<PatternSearch> future = new CompletableFuture<>();
+        private long footprint;
+    }
+}
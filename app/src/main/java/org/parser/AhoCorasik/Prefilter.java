@@ -0,0 +1,59 @@
+package org.parser.AhoCorasik;
+
+/**
+ * Skips the text a match cannot start in: finds the next char that is the
+ * first char of some pattern. While the automaton is in its root state every
+ * other char leads back to the root without output, so the search can jump
+ * straight to the position found here.
+ * <p>
+ * Small first-char sets are scanned with the Vector API when the
+ * {@code jdk.incubator.vector} module is present, comparing a whole vector of
+ * chars against every first char at once. Otherwise, and for larger sets, the
+ * chars are tested one by one against a bit set.
+ */
+abstract class Prefilter {
+    private static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private final long[] bits = new long[1 << 10];
+
+    Prefilter(char[] firstChars) {
+        for (char ch : firstChars) {
+            bits[ch >>> 6] |= 1L << ch;
+        }
+    }
+
+    static Prefilter of(char[] firstChars) {
+        if (VECTOR_AVAILABLE && firstChars.length <= VectorPrefilter.MAX_CHARS) {
+            Prefilter vector = VectorPrefilter.create(firstChars);
+            if (vector != null) {
+                return vector;
+            }
+        }
+        return new Scalar(firstChars);
+    }
+
+    /**
+     * @return index of the first char in {@code [from, to)} a pattern starts
+     *         with, or {@code to} if there is none
+     */
+    abstract int next(char[] chars, int from, int to);
+
+    final int nextScalar(char[] chars, int from, int to) {
+        int i = from;
+        while (i < to && (bits[chars[i] >>> 6] & (1L << chars[i])) == 0) {
+            ++i;
+        }
+        return i;
+    }
+
+    static class Scalar extends Prefilter {
+        Scalar(char[] firstChars) {
+            super(firstChars);
+        }
+
+        @Override
+        int next(char[] chars, int from, int to) {
+            return nextScalar(chars, from, to);
+        }
+    }
+}
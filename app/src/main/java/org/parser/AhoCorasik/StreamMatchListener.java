@@ -0,0 +1,13 @@
+package org.parser.AhoCorasik;
+
+/**
+ * Receives matches found while streaming text through a {@link PatternSearch}.
+ * Offsets are absolute char positions from the beginning of the stream,
+ * {@code end} is exclusive.
+ */
+public interface StreamMatchListener {
+    /**
+     * @return {@code false} to stop the search
+     */
+    boolean onMatch(int patternId, long start, long end);
+}
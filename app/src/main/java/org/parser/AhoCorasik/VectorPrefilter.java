@@ -0,0 +1,48 @@
+package org.parser.AhoCorasik;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API flavour of {@link Prefilter}. Only referenced once the
+ * {@code jdk.incubator.vector} module is known to be present.
+ */
+final class VectorPrefilter extends Prefilter {
+    static final int MAX_CHARS = 8;
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    private final short[] needles;
+
+    private VectorPrefilter(char[] firstChars) {
+        super(firstChars);
+        this.needles = new short[firstChars.length];
+        for (int i = 0; i < firstChars.length; ++i) {
+            needles[i] = (short) firstChars[i];
+        }
+    }
+
+    /**
+     * @return the prefilter, or {@code null} if the platform has no vectors
+     *         wider than a few chars
+     */
+    static Prefilter create(char[] firstChars) {
+        return SPECIES.length() >= 8 && firstChars.length > 0 ? new VectorPrefilter(firstChars) : null;
+    }
+
+    @Override
+    int next(char[] chars, int from, int to) {
+        int i = from;
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            ShortVector block = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> hits = block.eq(needles[0]);
+            for (int k = 1; k < needles.length; ++k) {
+                hits = hits.or(block.eq(needles[k]));
+            }
+            if (hits.anyTrue()) {
+                return i + hits.firstTrue();
+            }
+        }
+        return nextScalar(chars, i, to);
+    }
+}
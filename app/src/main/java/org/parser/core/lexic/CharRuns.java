@@ -0,0 +1,89 @@
+package org.parser.core.lexic;
+
+/**
+ * Finds the end of a run of blanks, digits or identifier chars, so the
+ * {@link Scanner} can consume a whole run in one call instead of one char at
+ * a time.
+ * <p>
+ * Only the plain ASCII members of each class are recognised here: spaces,
+ * tabs and carriage returns, {@code 0-9}, and {@code A-Z a-z 0-9 _ $}. The
+ * scanner goes on char by char from wherever a run stops, so other members
+ * of a class (non-ASCII letters and digits, ignorable control chars) are
+ * still accepted. When the {@code jdk.incubator.vector} module is present
+ * runs are classified a whole vector of chars at a time.
+ */
+abstract class CharRuns {
+    private static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    static final CharRuns INSTANCE = create();
+
+    private static CharRuns create() {
+        if (VECTOR_AVAILABLE) {
+            CharRuns vector = VectorCharRuns.create();
+            if (vector != null) {
+                return vector;
+            }
+        }
+        return new Scalar();
+    }
+
+    /**
+     * @return index of the first char in {@code [from, to)} that is not a
+     *         space, tab or carriage return, or {@code to} if there is none
+     */
+    abstract int blanks(char[] chars, int from, int to);
+
+    /**
+     * @return index of the first char in {@code [from, to)} that is not an
+     *         ASCII digit, or {@code to} if there is none
+     */
+    abstract int digits(char[] chars, int from, int to);
+
+    /**
+     * @return index of the first char in {@code [from, to)} that is not an
+     *         ASCII letter, digit, {@code _} or {@code $}, or {@code to} if
+     *         there is none
+     */
+    abstract int identifierChars(char[] chars, int from, int to);
+
+    static boolean isBlank(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\r';
+    }
+
+    static boolean isAsciiDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    static boolean isAsciiIdentifierChar(char ch) {
+        return (char) ((ch | 0x20) - 'a') < 26 || isAsciiDigit(ch) || ch == '_' || ch == '$';
+    }
+
+    static class Scalar extends CharRuns {
+        @Override
+        int blanks(char[] chars, int from, int to) {
+            int i = from;
+            while (i < to && isBlank(chars[i])) {
+                ++i;
+            }
+            return i;
+        }
+
+        @Override
+        int digits(char[] chars, int from, int to) {
+            int i = from;
+            while (i < to && isAsciiDigit(chars[i])) {
+                ++i;
+            }
+            return i;
+        }
+
+        @Override
+        int identifierChars(char[] chars, int from, int to) {
+            int i = from;
+            while (i < to && isAsciiIdentifierChar(chars[i])) {
+                ++i;
+            }
+            return i;
+        }
+    }
+}
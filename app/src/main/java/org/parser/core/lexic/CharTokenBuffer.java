@@ -0,0 +1,76 @@
+package org.parser.core.lexic;
+
+import java.nio.CharBuffer;
+
+import org.parser.error.Diagnostics;
+import org.parser.token.SymbolTable;
+
+/**
+ * Tokens of a char source, see {@link Scanner#scanBuffer()}. Lexemes are
+ * views into the source chars, and the tokens can be updated after an edit of
+ * the source.
+ */
+public class CharTokenBuffer extends TokenBuffer {
+    private final Diagnostics diagnostics;
+    private char[] source;
+
+    /**
+     * @param diagnostics receives the errors of the scans after an edit, like
+     *                    those of the scan that produced the tokens
+     */
+    CharTokenBuffer(char[] source, SymbolTable symbols, Diagnostics diagnostics, int capacity) {
+        super(symbols, capacity);
+        this.source = source;
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Updates the tokens after the source was edited: scans again from the
+     * last token the edit cannot affect, and stops as soon as a token starts
+     * where one of the old tokens following the edit now starts, since the
+     * scan goes on the same from there. The tokens after it are kept, moved
+     * by the length of the edit and the number of lines it adds or removes.
+     * <p>
+     * The work done depends on the size of the edit, and the distance to the
+     * previous one, but not on the size of the source. Errors in the tokens
+     * scanned again are reported to the diagnostics of the first scan.
+     *
+     * @param source         the whole source after the edit; the old one is
+     *                       no longer referenced
+     * @param offset         where the edit starts
+     * @param removedLength  number of chars the edit removed at the offset
+     * @param insertedLength number of chars the edit inserted at the offset
+     * @return number of tokens scanned again
+     */
+    public int edit(char[] source, int offset, int removedLength, int insertedLength) {
+        int first = startEdit(source.length, offset, removedLength, insertedLength);
+        int from = first == 0 ? 0 : getStart(first - 1) + getLength(first - 1);
+        int line = first == 0 ? 1 : getLine(first - 1);
+        this.source = source;
+        new Scanner(source, getSymbols(), diagnostics, from, line).rescan(this);
+        return rescanned();
+    }
+
+    @Override
+    CharSequence lexeme(int start, int length) {
+        return CharBuffer.wrap(source, start, length).asReadOnlyBuffer();
+    }
+
+    @Override
+    boolean lexemeEquals(int start, int length, String text) {
+        if (length != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (source[start + i] != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    String text(int start, int length) {
+        return new String(source, start, length);
+    }
+}
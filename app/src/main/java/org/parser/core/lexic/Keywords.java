@@ -0,0 +1,90 @@
+package org.parser.core.lexic;
+
+import java.util.Arrays;
+
+import org.parser.token.TokenType;
+
+/**
+ * Perfect hash of the lowercased {@link TokenType} names, the names
+ * {@link TokenType#getTypesMap()} maps. The hash of a name is its
+ * {@code String.hashCode()}, which the scanner accumulates while reading an
+ * identifier; a multiplier found when the class is loaded spreads the names
+ * over a power-of-two table without collisions, so a lookup is one multiply,
+ * one table read and one comparison.
+ */
+final class Keywords {
+    private static final TokenType[] KINDS = TokenType.values();
+    private static final char[][] NAMES = new char[KINDS.length][];
+    private static final int MAX_TABLE_BITS = 16;
+    private static final int SEED;
+    private static final int SHIFT;
+    private static final int[] TABLE;
+
+    static {
+        int[] hashes = new int[KINDS.length];
+        for (TokenType type : KINDS) {
+            String name = type.name().toLowerCase();
+            NAMES[type.ordinal()] = name.toCharArray();
+            hashes[type.ordinal()] = name.hashCode();
+        }
+        PerfectHash hash = build(hashes);
+        SEED = hash.seed;
+        SHIFT = hash.shift;
+        TABLE = hash.table;
+    }
+
+    private Keywords() {
+    }
+
+    private static PerfectHash build(int[] hashes) {
+        for (int bits = 32 - Integer.numberOfLeadingZeros(hashes.length) + 1; bits <= MAX_TABLE_BITS; ++bits) {
+            int[] candidate = new int[1 << bits];
+            for (int multiplier = 0x9E3779B9, tries = 0; tries < 1 << 16; multiplier += 2, ++tries) {
+                Arrays.fill(candidate, -1);
+                if (place(hashes, candidate, multiplier, 32 - bits)) {
+                    return new PerfectHash(multiplier, 32 - bits, candidate);
+                }
+            }
+        }
+        throw new IllegalStateException("No perfect hash for the token type names");
+    }
+
+    private static boolean place(int[] hashes, int[] candidate, int multiplier, int shift) {
+        for (int ordinal = 0; ordinal < hashes.length; ++ordinal) {
+            int slot = (hashes[ordinal] * multiplier) >>> shift;
+            if (candidate[slot] != -1) {
+                return false;
+            }
+            candidate[slot] = ordinal;
+        }
+        return true;
+    }
+
+    /**
+     * @param hash {@code String.hashCode()} of the identifier
+     * @return the token type named by {@code chars[start, start + length)},
+     *         {@code IDENTIFIER} if there is none
+     */
+    static TokenType lookup(char[] chars, int start, int length, int hash) {
+        int ordinal = TABLE[(hash * SEED) >>> SHIFT];
+        if (ordinal != -1 && Arrays.equals(NAMES[ordinal], 0, NAMES[ordinal].length, chars, start, start + length)) {
+            return KINDS[ordinal];
+        }
+        return TokenType.IDENTIFIER;
+    }
+
+    /**
+     * Multiplier, shift and table found by {@link #build}.
+     */
+    private static final class PerfectHash {
+        private final int seed;
+        private final int shift;
+        private final int[] table;
+
+        private PerfectHash(int seed, int shift, int[] table) {
+            this.seed = seed;
+            this.shift = shift;
+            this.table = table;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package org.parser.core.lexic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import org.parser.error.Diagnostic;
+import org.parser.error.Diagnostics;
+import org.parser.token.SymbolTable;
+import org.parser.token.Token;
+
+/**
+ * Scans a large source on several cores, producing exactly the tokens, line
+ * numbers, symbol ids and error messages of a sequential {@link Scanner}.
+ * <p>
+ * The source is split into chunks after a newline. The newlines of every
+ * chunk are counted first, which gives the line each chunk starts on; then
+ * every chunk is scanned on its own as if it started outside any token,
+ * interning identifiers into a table of its own. The chunks are then
+ * stitched in order, interning the identifiers into the result's table in
+ * order of appearance.
+ * <p>
+ * A split can turn out to be inside a string spanning several lines, the
+ * only token that contains newlines. Then the scan goes on from the end of
+ * that string into the next chunk until a token starts where a token of the
+ * chunk starts, and the chunk's tokens are used from there on.
+ */
+public class ParallelScanner {
+    private static final int MIN_CHUNK_LENGTH = 1 << 16;
+    private static final int MIN_TOKEN_BATCH = 1 << 12;
+
+    private final ForkJoinPool pool;
+
+    public ParallelScanner() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ParallelScanner(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return tokens equal to the ones {@link Scanner#scan()} produces
+     */
+    public List<Token> scan(char[] chars) {
+        TokenBuffer tokens = scanBuffer(chars, new SymbolTable());
+        Token[] res = new Token[tokens.size()];
+        pool.invoke(new TokenTask(tokens, res, 0, res.length));
+        return new ArrayList<>(Arrays.asList(res));
+    }
+
+    /**
+     * @param symbols table the identifiers are interned into
+     * @return tokens equal to the ones {@link Scanner#scanBuffer()} produces
+     */
+    public CharTokenBuffer scanBuffer(char[] chars, SymbolTable symbols) {
+        return scanBuffer(chars, symbols, new Diagnostics());
+    }
+
+    /**
+     * @param diagnostics receives the errors in the order a {@link Scanner}
+     *                    reports them
+     */
+    public CharTokenBuffer scanBuffer(char[] chars, SymbolTable symbols, Diagnostics diagnostics) {
+        long chunks = Math.max(1, Math.min(pool.getParallelism() * 4L, chars.length / MIN_CHUNK_LENGTH));
+        return scanBuffer(chars, symbols, diagnostics, (int) chunks);
+    }
+
+    CharTokenBuffer scanBuffer(char[] chars, SymbolTable symbols, Diagnostics diagnostics, int chunks) {
+        int[] bounds = new int[chunks + 1];
+        int count = 1;
+        for (int from = 0; from < chars.length; ++count) {
+            from = count >= chunks ? chars.length
+                    : lineEnd(chars, Math.max(from, (int) ((long) chars.length * count / chunks)));
+            bounds[count] = from;
+        }
+        int[] newlines = new int[count - 1];
+        pool.invoke(new NewlineTask(chars, bounds, newlines, 0, newlines.length));
+        List<ChunkTask> tasks = new ArrayList<>();
+        for (int i = 0, line = 1; i < newlines.length; ++i) {
+            ChunkTask task = new ChunkTask(chars, bounds[i], bounds[i + 1], line);
+            pool.execute(task);
+            tasks.add(task);
+            line += newlines[i];
+        }
+        return stitch(chars, symbols, diagnostics, tasks);
+    }
+
+    /**
+     * @return index following the first newline at or after {@code from}
+     */
+    private static int lineEnd(char[] chars, int from) {
+        int i = from;
+        while (i < chars.length && chars[i] != '\n') {
+            ++i;
+        }
+        return Math.min(chars.length, i + 1);
+    }
+
+    private static CharTokenBuffer stitch(char[] chars, SymbolTable symbols, Diagnostics diagnostics,
+            List<ChunkTask> tasks) {
+        int size = 1;
+        for (ChunkTask task : tasks) {
+            size += task.join().tokens.size();
+        }
+        CharTokenBuffer res = new CharTokenBuffer(chars, symbols, diagnostics, size);
+        int position = 0;
+        int line = 1;
+        for (ChunkTask task : tasks) {
+            Chunk chunk = task.join();
+            if (position >= chunk.to) {
+                continue;
+            }
+            int sync = chunk.from;
+            if (position > chunk.from) {
+                Chunk rest = new Chunk(chars, position, chunk, line);
+                sync = rest.sync;
+                rest.appendTo(res, diagnostics, position, sync);
+                if (sync == -1) {
+                    position = rest.end;
+                    line = rest.endLine;
+                    continue;
+                }
+            }
+            chunk.appendTo(res, diagnostics, sync, chunk.to);
+            position = chunk.end;
+            line = chunk.endLine;
+        }
+        res.addEnd(chars.length, line);
+        return res;
+    }
+
+    /**
+     * Tokens and errors of the source from a position up to a limit, scanned
+     * as if no token started before the position.
+     */
+    private static class Chunk {
+        private final int from;
+        private final int to;
+        private final SymbolTable symbols = new SymbolTable();
+        private final TokenBuffer tokens;
+        private final Diagnostics diagnostics = new Diagnostics(Integer.MAX_VALUE);
+        private final int end;
+        private final int endLine;
+        private int sync = -1;
+        private int match;
+
+        private Chunk(char[] chars, int from, int to, int line) {
+            this(chars, from, to, line, null);
+        }
+
+        /**
+         * Scans the rest of a chunk from a position inside it, stopping at
+         * the first token that starts where one of the chunk's tokens
+         * starts, see {@link #sync}.
+         */
+        private Chunk(char[] chars, int from, Chunk chunk, int line) {
+            this(chars, from, chunk.to, line, chunk);
+        }
+
+        private Chunk(char[] chars, int from, int to, int line, Chunk chunk) {
+            this.from = from;
+            this.to = to;
+            this.tokens = new CharTokenBuffer(chars, symbols, diagnostics,
+                    chunk == null ? Math.max(16, (to - from) / 4) : 16);
+            Scanner scanner = new Scanner(chars, symbols, diagnostics, from, line);
+            this.end = scanner.scanTo(tokens, to, start -> chunk != null && catchesUp(chunk, start));
+            this.endLine = scanner.getLine();
+        }
+
+        /**
+         * Compares the start of a token scanned after the chunk's own tokens
+         * up to it; starts only grow, so every token of the chunk is
+         * compared once.
+         *
+         * @return {@code true} if a token of the chunk starts there too, which
+         *         is then the start of the chunk's tokens to use, {@link #sync}
+         */
+        private boolean catchesUp(Chunk chunk, int start) {
+            while (match < chunk.tokens.size() && chunk.tokens.getStart(match) < start) {
+                ++match;
+            }
+            if (match < chunk.tokens.size() && chunk.tokens.getStart(match) == start) {
+                sync = start;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Appends the tokens and errors from {@code from} up to {@code stop},
+         * or to the end if {@code stop} is -1.
+         */
+        private void appendTo(TokenBuffer res, Diagnostics resDiagnostics, int from, int stop) {
+            int limit = stop == -1 ? Integer.MAX_VALUE : stop;
+            for (Diagnostic diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getOffset() >= from && diagnostic.getOffset() < limit) {
+                    resDiagnostics.report(diagnostic);
+                }
+            }
+            res.addAll(tokens, indexOf(from), indexOf(limit));
+        }
+
+        /**
+         * @return index of the first token starting at or after the position
+         */
+        private int indexOf(int position) {
+            int low = 0;
+            int high = tokens.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (tokens.getStart(middle) < position) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    private static class ChunkTask extends RecursiveTask<Chunk> {
+        private static final long serialVersionUID = 1L;
+        private final char[] chars;
+        private final int from;
+        private final int to;
+        private final int line;
+
+        private ChunkTask(char[] chars, int from, int to, int line) {
+            this.chars = chars;
+            this.from = from;
+            this.to = to;
+            this.line = line;
+        }
+
+        @Override
+        protected Chunk compute() {
+            return new Chunk(chars, from, to, line);
+        }
+    }
+
+    /**
+     * Counts the newlines of a range of the chunks, splitting the range
+     * between workers.
+     */
+    private static class NewlineTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final char[] chars;
+        private final int[] bounds;
+        private final int[] newlines;
+        private final int from;
+        private final int to;
+
+        private NewlineTask(char[] chars, int[] bounds, int[] newlines, int from, int to) {
+            this.chars = chars;
+            this.bounds = bounds;
+            this.newlines = newlines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new NewlineTask(chars, bounds, newlines, from, middle),
+                        new NewlineTask(chars, bounds, newlines, middle, to));
+                return;
+            }
+            for (int chunk = from; chunk < to; ++chunk) {
+                int count = 0;
+                for (int i = bounds[chunk], end = bounds[chunk + 1]; i < end; ++i) {
+                    if (chars[i] == '\n') {
+                        ++count;
+                    }
+                }
+                newlines[chunk] = count;
+            }
+        }
+    }
+
+    /**
+     * Creates the {@link Token} objects of a range of the tokens, splitting
+     * the range between workers.
+     */
+    private static class TokenTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient TokenBuffer tokens;
+        private final transient Token[] res;
+        private final int from;
+        private final int to;
+
+        private TokenTask(TokenBuffer tokens, Token[] res, int from, int to) {
+            this.tokens = tokens;
+            this.res = res;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= MIN_TOKEN_BATCH) {
+                for (int i = from; i < to; ++i) {
+                    res[i] = tokens.getToken(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TokenTask(tokens, res, from, middle), new TokenTask(tokens, res, middle, to));
+        }
+    }
+}
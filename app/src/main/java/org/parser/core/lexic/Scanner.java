@@ -1,40 +1,215 @@
 package org.parser.core.lexic;
 
+import java.nio.CharBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.IntPredicate;
 
-import org.parser.error.RuntimeError;
+import org.parser.error.Diagnostic;
+import org.parser.error.Diagnostics;
+import org.parser.token.SymbolTable;
 import org.parser.token.Token;
+import org.parser.token.TokenSource;
 import org.parser.token.TokenType;
 
-public class Scanner {
+public class Scanner implements TokenSource {
+    private static final byte DIGIT = 1;
+    private static final byte IDENTIFIER_START = 2;
+    private static final byte IDENTIFIER_PART = 4;
+    private static final byte[] ASCII_CLASSES = asciiClasses();
+    /**
+     * Identifiers are hashed while they are scanned; only one longer than
+     * this is skipped in bulk and hashed afterwards.
+     */
+    private static final int SHORT_IDENTIFIER = 16;
     private final char CTRL_Z = '\u001a';
-    private final List<Token> tokens;
     private final char[] chars;
+    private final SymbolTable symbols;
+    private final CharRuns runs;
+    private final Diagnostics diagnostics;
+    private int limit;
+    private TokenType kind;
+    private int tokenLine;
+    private int tokenSymbol;
+    private Token eof;
     private int start;
     private int current;
     private int line;
 
     public Scanner(char[] chars) {
+        this(chars, new SymbolTable());
+    }
+
+    /**
+     * @param symbols table the identifiers are interned into, may be shared by
+     *                the scanners of several sources
+     */
+    public Scanner(char[] chars, SymbolTable symbols) {
+        this(chars, symbols, new Diagnostics());
+    }
+
+    /**
+     * @param diagnostics receives the errors, which are skipped
+     */
+    public Scanner(char[] chars, SymbolTable symbols, Diagnostics diagnostics) {
+        this(chars, symbols, CharRuns.INSTANCE, diagnostics);
+    }
+
+    Scanner(char[] chars, SymbolTable symbols, CharRuns runs) {
+        this(chars, symbols, runs, new Diagnostics());
+    }
+
+    private Scanner(char[] chars, SymbolTable symbols, CharRuns runs, Diagnostics diagnostics) {
         this.chars = Optional.ofNullable(chars).orElse(new char[0]);
-        this.tokens = new ArrayList<>();
+        this.symbols = symbols;
+        this.runs = runs;
+        this.diagnostics = diagnostics;
         this.line = 1;
+        this.limit = this.chars.length;
+    }
+
+    /**
+     * Scanner starting in the middle of the source, see
+     * {@link CharTokenBuffer#edit}.
+     */
+    Scanner(char[] chars, SymbolTable symbols, Diagnostics diagnostics, int from, int line) {
+        this(chars, symbols, diagnostics);
+        this.current = from;
+        this.line = line;
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
     }
 
     public List<Token> scan() {
-        while (isNotEnd()) {
-            this.start = current;
-            try {
-                parse();
-            } catch (Exception e) {
-                System.out.println(e.getMessage());
-            }
+        List<Token> tokens = new ArrayList<>();
+        Token token;
+        do {
+            token = nextToken();
+            tokens.add(token);
+        } while (token != eof);
+        return tokens;
+    }
+
+    /**
+     * Scans just far enough to produce one token, so the source is tokenized
+     * while it is being parsed and no token list is held. Errors are reported
+     * and skipped as in {@link #scan()}.
+     *
+     * @return next token, {@code EOF} once the source is exhausted; the
+     *         identifier "eof" scans to an {@code EOF} token too, but only
+     *         the final one is returned again on later calls
+     */
+    @Override
+    public Token nextToken() {
+        if (scanToken()) {
+            return token();
+        }
+        if (eof == null) {
+            eof = Token.builder().lexeme("").kind(TokenType.EOF).line(line).build();
         }
-        addToken(TokenType.EOF, "", null, line);
+        return eof;
+    }
+
+    /**
+     * Scans the whole source into a {@link TokenBuffer}, which keeps only the
+     * kind, position and line of every token: no lexeme, value or token
+     * object is created unless asked for. Ends with an {@code EOF} token like
+     * {@link #scan()}.
+     *
+     * @return packed tokens
+     */
+    public CharTokenBuffer scanBuffer() {
+        CharTokenBuffer tokens = new CharTokenBuffer(chars, symbols, diagnostics, Math.max(16, chars.length / 4));
+        while (scanToken()) {
+            tokens.add(kind, start, current - start, tokenLine, tokenSymbol);
+        }
+        tokens.addEnd(chars.length, line);
         return tokens;
     }
 
+    /**
+     * Scans the tokens following an edit into the buffer until they fall in
+     * line with the tokens it already has.
+     */
+    void rescan(TokenBuffer tokens) {
+        while (scanToken()) {
+            if (!tokens.resync(kind, start, current - start, tokenLine, tokenSymbol)) {
+                return;
+            }
+        }
+        tokens.resyncEnd(line);
+    }
+
+    /**
+     * Scans the tokens starting before {@code limit} into the buffer, without
+     * an {@code EOF} token, see {@link ParallelScanner}.
+     *
+     * @param stop   tells from the start of a token whether to stop before
+     *               it
+     * @return where the scan stopped: the start of the token it stopped
+     *         before, past the limit if the last token crosses it, e.g. a
+     *         string spanning several lines
+     */
+    int scanTo(TokenBuffer tokens, int limit, IntPredicate stop) {
+        this.limit = limit;
+        while (scanToken()) {
+            if (stop.test(start)) {
+                return start;
+            }
+            tokens.add(kind, start, current - start, tokenLine, tokenSymbol);
+        }
+        return current;
+    }
+
+    int getLine() {
+        return line;
+    }
+
+    /**
+     * Scans up to the end of the next token, which is then described by
+     * {@link #kind}, {@link #start}, {@link #current}, {@link #tokenLine}
+     * and, for an identifier, {@link #tokenSymbol}.
+     *
+     * @return {@code false} if the source is exhausted
+     */
+    private boolean scanToken() {
+        kind = null;
+        while (kind == null && current < limit) {
+            this.start = current;
+            parse();
+        }
+        return kind != null;
+    }
+
+    private Token token() {
+        if (kind == TokenType.IDENTIFIER) {
+            return Token.builder().lexeme(symbols.getName(tokenSymbol)).kind(kind).line(tokenLine)
+                    .symbol(tokenSymbol).build();
+        }
+        String lexeme = new String(chars, start, current - start);
+        Object value = value(kind, lexeme);
+        return Token.builder().lexeme(lexeme).kind(kind).value(value).line(tokenLine).build();
+    }
+
+    /**
+     * @return the number of a numeric literal, the contents of a string
+     *         literal without its quotes, {@code null} otherwise; the words
+     *         "number" and "string" scan to {@code NUMBER} and {@code STRING}
+     *         too, but have no value
+     */
+    static Object value(TokenType kind, String lexeme) {
+        if (kind == TokenType.NUMBER && isDigit(lexeme.charAt(0))) {
+            return Double.valueOf(lexeme);
+        }
+        if (kind == TokenType.STRING && lexeme.charAt(0) == '"') {
+            return lexeme.substring(1, Math.max(1, lexeme.length() - 1));
+        }
+        return null;
+    }
+
     void parse() {
         char ch = advance();
         switch (ch) {
@@ -58,43 +233,62 @@ public class Scanner {
             case '"': string(); break;
             case '\t':
             case '\r':
-            case ' ': break;
-            case '\n': line += 1; break;
+            case ' ': blanks(); break;
+            case '\n':
+                line += 1;
+                blanks();
+                break;
             default:
-                if (Character.isDigit(ch)) {
+                if (isDigit(ch)) {
                     numeric();
-                } else if (Character.isJavaIdentifierStart(ch)) {
+                } else if (isIdentifierStart(ch)) {
                     identifier();
                 } else {
-                    String lexeme = new String(chars, start, current - start);
-                    Token token = Token.builder().lexeme(lexeme).kind(TokenType.NIL).line(line).build();
-                    throw new RuntimeError(token, "Unknown character");
+                    error(Diagnostic.Kind.UNKNOWN_CHARACTER, line);
                 }
             break;
         }
     }
 
     void identifier() {
-        while (isNotEnd() && Character.isJavaIdentifierPart(peek())) {
-            advance();
+        int hash = chars[start];
+        int limit = Math.min(chars.length, start + SHORT_IDENTIFIER);
+        while (current < limit && isIdentifierPart(chars[current])) {
+            hash = 31 * hash + chars[current++];
+        }
+        if (current == limit) {
+            int end = runs.identifierChars(chars, current, chars.length);
+            while (end < chars.length && isIdentifierPart(chars[end])) {
+                ++end;
+            }
+            while (current < end) {
+                hash = 31 * hash + chars[current++];
+            }
+        }
+        TokenType kind = Keywords.lookup(chars, start, current - start, hash);
+        addToken(kind);
+        if (kind == TokenType.IDENTIFIER) {
+            tokenSymbol = symbols.intern(chars, start, current - start, hash);
         }
-        String lexeme = new String(chars, start, current - start);
-        TokenType kind = TokenType.getTypesMap().getOrDefault(lexeme, TokenType.IDENTIFIER);
-        addToken(kind, lexeme, null, line);
     }
 
+    /**
+     * Digits other than ASCII ones are digits, but not a number the token
+     * value can be parsed from; such a number is reported and skipped.
+     */
     void numeric() {
-        while (isNotEnd() && Character.isDigit(peek())) {
+        digits();
+        if (check('.') && isDigit(peekNext())) {
             advance();
+            digits();
         }
-        if (check('.') && Character.isDigit(peekNext())) {
-            do {
-                advance();
-            } while (isNotEnd() && Character.isDigit(peek()));
+        for (int i = start; i < current; ++i) {
+            if (chars[i] >= 0x80) {
+                error(Diagnostic.Kind.INVALID_NUMBER, line);
+                return;
+            }
         }
-        String lexeme = new String(chars, start, current - start);
-        Double value = Double.valueOf(lexeme);
-        addToken(TokenType.NUMBER, lexeme, value, line);
+        addToken(TokenType.NUMBER);
     }
 
     void string() {
@@ -105,14 +299,59 @@ public class Scanner {
             advance();
         } while (isNotEnd() && !check('"'));
         advance();
-        String lexeme = new String(chars, start, current - start);
-        String value = new String(chars, start + 1, current - start - 2);
-        Token token = addToken(TokenType.STRING, lexeme, value, line);
-        if (!isNotEnd() && previous() != '"') {
-            throw new RuntimeError(token, "Unclosed string");
+        addToken(TokenType.STRING);
+        if (current - start < 2 || !isNotEnd() && previous() != '"') {
+            error(Diagnostic.Kind.UNCLOSED_STRING, tokenLine);
         }
     }
 
+    private void error(Diagnostic.Kind kind, int line) {
+        diagnostics.report(new Diagnostic(kind, start, line, CharBuffer.wrap(chars, start, current - start)));
+    }
+
+    /**
+     * Skips blanks up to the scan limit, so a chunk of a
+     * {@link ParallelScanner} does not run into the indentation of the next.
+     */
+    private void blanks() {
+        if (current < limit && CharRuns.isBlank(chars[current])) {
+            current = runs.blanks(chars, current + 1, limit);
+        }
+    }
+
+    private void digits() {
+        current = runs.digits(chars, current, limit);
+        while (current < limit && isDigit(chars[current])) {
+            ++current;
+        }
+    }
+
+    /**
+     * Classes of the ASCII chars, as given by {@link Character}; other chars
+     * are classified by {@link Character} on every call.
+     */
+    private static byte[] asciiClasses() {
+        byte[] classes = new byte[128];
+        for (char ch = 0; ch < classes.length; ++ch) {
+            classes[ch] = (byte) ((Character.isDigit(ch) ? DIGIT : 0)
+                    | (Character.isJavaIdentifierStart(ch) ? IDENTIFIER_START : 0)
+                    | (Character.isJavaIdentifierPart(ch) ? IDENTIFIER_PART : 0));
+        }
+        return classes;
+    }
+
+    static boolean isDigit(char ch) {
+        return ch < 128 ? (ASCII_CLASSES[ch] & DIGIT) != 0 : Character.isDigit(ch);
+    }
+
+    static boolean isIdentifierStart(char ch) {
+        return ch < 128 ? (ASCII_CLASSES[ch] & IDENTIFIER_START) != 0 : Character.isJavaIdentifierStart(ch);
+    }
+
+    static boolean isIdentifierPart(char ch) {
+        return ch < 128 ? (ASCII_CLASSES[ch] & IDENTIFIER_PART) != 0 : Character.isJavaIdentifierPart(ch);
+    }
+
     char advance() {
         return isNotEnd() ? chars[current++] : CTRL_Z;
     }
@@ -141,15 +380,10 @@ public class Scanner {
         return current > 0 && chars.length > current - 1 ? chars[current - 1] : CTRL_Z;
     }
 
-    Token addToken(TokenType type) {
-        String lexeme = new String(chars, start, current - start);
-        return addToken(type, lexeme, null, line);
-    }
-
-    Token addToken(TokenType type, String lexeme, Object value, int line) {
-        Token token = Token.builder().lexeme(lexeme).kind(type).value(value).line(line).build();
-        tokens.add(token);
-        return token;
+    void addToken(TokenType type) {
+        this.kind = type;
+        this.tokenLine = line;
+        this.tokenSymbol = -1;
     }
 
     boolean isNotEnd() {
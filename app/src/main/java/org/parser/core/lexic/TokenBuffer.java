@@ -0,0 +1,336 @@
+package org.parser.core.lexic;
+
+import java.util.Arrays;
+
+import org.parser.token.SymbolTable;
+import org.parser.token.Token;
+import org.parser.token.TokenSource;
+import org.parser.token.TokenType;
+
+/**
+ * Tokens of a source packed into parallel int arrays: kind ordinal, start
+ * offset, length and line. Lexemes are views into the source; strings,
+ * values and {@link Token} objects are only created for the tokens they are
+ * asked for.
+ * <p>
+ * Offsets and lengths count chars in a {@link CharTokenBuffer}, or bytes in
+ * the tokens of a {@link Utf8Scanner}. Only the former can be edited.
+ * <p>
+ * The arrays are a gap buffer, so that {@link CharTokenBuffer#edit} can
+ * replace the tokens around an edit without moving the rest. Tokens after the
+ * gap store their start relative to the end of the source and their line
+ * relative to the last line, which an edit before them does not change;
+ * moving the gap converts only the tokens it passes.
+ */
+public abstract class TokenBuffer {
+    private static final TokenType[] KINDS = TokenType.values();
+
+    private final SymbolTable symbols;
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int[] tokenSymbols;
+    private int size;
+    private int gapStart;
+    private int gapEnd;
+    private int length;
+    private int lastLine;
+    private int editEnd;
+    private int rescanned;
+
+    TokenBuffer(SymbolTable symbols, int capacity) {
+        this.symbols = symbols;
+        this.tokenSymbols = new int[capacity];
+        this.kinds = new int[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.lines = new int[capacity];
+        this.gapEnd = capacity;
+    }
+
+    /**
+     * Adds a token before the gap, which is at the end unless an edit is
+     * being scanned.
+     */
+    void add(TokenType kind, int start, int length, int line, int symbol) {
+        if (gapStart == gapEnd) {
+            grow();
+        }
+        kinds[gapStart] = kind.ordinal();
+        starts[gapStart] = start;
+        lengths[gapStart] = length;
+        lines[gapStart] = line;
+        tokenSymbols[gapStart] = symbol;
+        ++gapStart;
+        ++size;
+    }
+
+    /**
+     * Adds the {@code EOF} token ending the source, which sets the length and
+     * last line the tokens after the gap are relative to. The identifier
+     * "eof" is added with {@link #add} like any other token.
+     */
+    void addEnd(int length, int line) {
+        add(TokenType.EOF, length, 0, line, -1);
+        this.length = length;
+        this.lastLine = line;
+    }
+
+    /**
+     * Appends the tokens {@code [from, to)} of another buffer of the same
+     * source, whose gap is at the end, interning their identifiers into this
+     * buffer's table in order, see {@link ParallelScanner}.
+     */
+    void addAll(TokenBuffer tokens, int from, int to) {
+        int count = to - from;
+        while (gapEnd - gapStart < count) {
+            grow();
+        }
+        System.arraycopy(tokens.kinds, from, kinds, gapStart, count);
+        System.arraycopy(tokens.starts, from, starts, gapStart, count);
+        System.arraycopy(tokens.lengths, from, lengths, gapStart, count);
+        System.arraycopy(tokens.lines, from, lines, gapStart, count);
+        int[] symbolIds = new int[tokens.symbols.size()];
+        Arrays.fill(symbolIds, -1);
+        for (int i = 0; i < count; ++i) {
+            int symbol = tokens.tokenSymbols[from + i];
+            if (symbol != -1) {
+                if (symbolIds[symbol] == -1) {
+                    symbolIds[symbol] = symbols.intern(tokens.symbols.getName(symbol));
+                }
+                symbol = symbolIds[symbol];
+            }
+            tokenSymbols[gapStart + i] = symbol;
+        }
+        gapStart += count;
+        size += count;
+    }
+
+    /**
+     * Checks an edit of the source and moves the gap to the first token it
+     * can affect, from where the caller scans again with {@link #resync}.
+     *
+     * @param sourceLength length of the source after the edit
+     * @return index of the first token to scan again
+     */
+    int startEdit(int sourceLength, int offset, int removedLength, int insertedLength) {
+        if (offset < 0 || removedLength < 0 || insertedLength < 0 || offset + removedLength > length
+                || sourceLength != length - removedLength + insertedLength) {
+            throw new IllegalArgumentException("Edit at " + offset + " removing " + removedLength + " and inserting "
+                    + insertedLength + " chars does not fit a source of " + length + " chars");
+        }
+        int first = firstAffected(offset);
+        moveGap(first);
+        this.length = sourceLength;
+        this.editEnd = offset + insertedLength;
+        this.rescanned = 0;
+        return first;
+    }
+
+    /**
+     * @return number of tokens added by {@link #resync} since the edit
+     *         started
+     */
+    int rescanned() {
+        return rescanned;
+    }
+
+    /**
+     * Adds a token scanned after an edit, unless the scan has caught up with
+     * the old tokens: drops the old tokens the edit touched or the new ones
+     * overlap, then compares the start of the next one.
+     *
+     * @return {@code false} if the scan can stop
+     */
+    boolean resync(TokenType kind, int start, int length, int line, int symbol) {
+        int eof = kinds.length - 1;
+        while (gapEnd < eof) {
+            int next = starts[gapEnd] + this.length;
+            if (next >= start && next >= editEnd) {
+                break;
+            }
+            ++gapEnd;
+            --size;
+        }
+        if (gapEnd < eof && starts[gapEnd] + this.length == start) {
+            lastLine = line - lines[gapEnd];
+            return false;
+        }
+        add(kind, start, length, line, symbol);
+        ++rescanned;
+        return true;
+    }
+
+    /**
+     * Ends a scan after an edit that reached the end of the source: only the
+     * old {@code EOF} token is kept.
+     */
+    void resyncEnd(int line) {
+        size -= kinds.length - 1 - gapEnd;
+        gapEnd = kinds.length - 1;
+        lastLine = line;
+    }
+
+    /**
+     * @return index of the first token that can change when the source is
+     *         edited at the offset; a token also depends on the two chars
+     *         following it, e.g. {@code 1.} followed by a digit
+     */
+    private int firstAffected(int offset) {
+        int low = 0;
+        int high = size - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getStart(middle) + getLength(middle) + 2 > offset) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void moveGap(int index) {
+        while (gapStart > index) {
+            --gapStart;
+            --gapEnd;
+            move(gapStart, gapEnd, -length, -lastLine);
+        }
+        while (gapStart < index) {
+            move(gapEnd, gapStart, length, lastLine);
+            ++gapStart;
+            ++gapEnd;
+        }
+    }
+
+    private void move(int from, int to, int startShift, int lineShift) {
+        kinds[to] = kinds[from];
+        starts[to] = starts[from] + startShift;
+        lengths[to] = lengths[from];
+        lines[to] = lines[from] + lineShift;
+        tokenSymbols[to] = tokenSymbols[from];
+    }
+
+    private void grow() {
+        int capacity = Math.max(16, kinds.length * 2);
+        int tail = kinds.length - gapEnd;
+        kinds = grow(kinds, capacity, tail);
+        starts = grow(starts, capacity, tail);
+        lengths = grow(lengths, capacity, tail);
+        lines = grow(lines, capacity, tail);
+        tokenSymbols = grow(tokenSymbols, capacity, tail);
+        gapEnd = capacity - tail;
+    }
+
+    private int[] grow(int[] values, int capacity, int tail) {
+        int[] grown = Arrays.copyOf(values, capacity);
+        System.arraycopy(values, values.length - tail, grown, capacity - tail, tail);
+        return grown;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType getKind(int index) {
+        return KINDS[kinds[slot(index)]];
+    }
+
+    public int getStart(int index) {
+        int slot = slot(index);
+        return slot < gapEnd ? starts[slot] : starts[slot] + length;
+    }
+
+    public int getLength(int index) {
+        return lengths[slot(index)];
+    }
+
+    public int getLine(int index) {
+        int slot = slot(index);
+        return slot < gapEnd ? lines[slot] : lines[slot] + lastLine;
+    }
+
+    /**
+     * @return id of an identifier in {@link #getSymbols()}, -1 for other
+     *         tokens
+     */
+    public int getSymbol(int index) {
+        return tokenSymbols[slot(index)];
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return the lexeme as a view into the source, without copying it
+     */
+    public CharSequence getLexeme(int index) {
+        return lexeme(getStart(index), getLength(index));
+    }
+
+    public boolean lexemeEquals(int index, String text) {
+        return lexemeEquals(getStart(index), getLength(index), text);
+    }
+
+    abstract CharSequence lexeme(int start, int length);
+
+    abstract boolean lexemeEquals(int start, int length, String text);
+
+    /**
+     * @return the lexeme as a string, the canonical instance for an
+     *         identifier and a new string otherwise
+     */
+    public String getText(int index) {
+        int symbol = getSymbol(index);
+        return symbol != -1 ? symbols.getName(symbol) : text(getStart(index), getLength(index));
+    }
+
+    abstract String text(int start, int length);
+
+    /**
+     * @return the value of a {@code NUMBER} or {@code STRING} token, parsed on
+     *         every call, {@code null} for other tokens
+     */
+    public Object getValue(int index) {
+        TokenType kind = getKind(index);
+        return kind == TokenType.NUMBER || kind == TokenType.STRING ? Scanner.value(kind, getText(index)) : null;
+    }
+
+    /**
+     * @return the token as a {@link Token}, equal to the one
+     *         {@link Scanner#scan()} produces
+     */
+    public Token getToken(int index) {
+        String lexeme = getText(index);
+        TokenType kind = getKind(index);
+        return Token.builder().lexeme(lexeme).kind(kind).value(Scanner.value(kind, lexeme)).line(getLine(index))
+                .symbol(getSymbol(index)).build();
+    }
+
+    /**
+     * @return source creating a {@link Token} for each token as it is pulled,
+     *         e.g. by the parser
+     */
+    public TokenSource tokens() {
+        return new TokenSource() {
+            private int current;
+
+            @Override
+            public Token nextToken() {
+                return getToken(current < size - 1 ? current++ : size - 1);
+            }
+        };
+    }
+
+    /**
+     * @return position of the token in the arrays
+     */
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token index " + index + " out of " + size);
+        }
+        return index < gapStart ? index : index + gapEnd - gapStart;
+    }
+}
@@ -0,0 +1,326 @@
+package org.parser.core.lexic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.parser.error.Diagnostic;
+import org.parser.error.Diagnostics;
+import org.parser.token.SymbolTable;
+import org.parser.token.Token;
+import org.parser.token.TokenSource;
+import org.parser.token.TokenType;
+
+/**
+ * {@link Scanner} for UTF-8 bytes, e.g. a memory mapped source file, which
+ * saves decoding the whole source to chars first. Produces the tokens the
+ * {@link Scanner} produces for the decoded source, but token offsets and
+ * lengths in a {@link TokenBuffer} count bytes.
+ * <p>
+ * Only the non-ASCII chars of identifiers are decoded while scanning, to
+ * classify them and to intern the identifier; string literals are skipped
+ * as bytes and only decoded when their text or value is asked for. Four byte
+ * sequences and malformed bytes are not valid in identifiers or numbers and
+ * are reported as unknown characters.
+ */
+public class Utf8Scanner implements TokenSource {
+    private static final char REPLACEMENT = '\uFFFD';
+    private final ByteBuffer bytes;
+    private final int limit;
+    private final SymbolTable symbols;
+    private final Diagnostics diagnostics;
+    private char[] name = new char[32];
+    private int width;
+    private TokenType kind;
+    private int tokenLine;
+    private int tokenSymbol;
+    private Token eof;
+    private int start;
+    private int current;
+    private int line;
+
+    public Utf8Scanner(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * @param bytes source between the position and the limit of the buffer,
+     *              which are left unchanged
+     */
+    public Utf8Scanner(ByteBuffer bytes) {
+        this(bytes, new SymbolTable());
+    }
+
+    public Utf8Scanner(ByteBuffer bytes, SymbolTable symbols) {
+        this(bytes, symbols, new Diagnostics());
+    }
+
+    /**
+     * @param diagnostics receives the errors, with byte offsets
+     */
+    public Utf8Scanner(ByteBuffer bytes, SymbolTable symbols, Diagnostics diagnostics) {
+        this.bytes = bytes.slice();
+        this.limit = this.bytes.limit();
+        this.symbols = symbols;
+        this.diagnostics = diagnostics;
+        this.line = 1;
+    }
+
+    /**
+     * Maps the file read-only; the mapping stays valid after the scanner is
+     * done with it, as long as the tokens refer to it.
+     *
+     * @throws IOException if the file cannot be mapped
+     */
+    public static Utf8Scanner map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new Utf8Scanner(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public List<Token> scan() {
+        List<Token> tokens = new ArrayList<>();
+        while (scanToken()) {
+            tokens.add(token());
+        }
+        tokens.add(nextToken());
+        return tokens;
+    }
+
+    @Override
+    public Token nextToken() {
+        if (scanToken()) {
+            return token();
+        }
+        if (eof == null) {
+            eof = Token.builder().lexeme("").kind(TokenType.EOF).line(line).build();
+        }
+        return eof;
+    }
+
+    /**
+     * @return packed tokens, with lexemes that are views into the source
+     *         bytes
+     */
+    public TokenBuffer scanBuffer() {
+        TokenBuffer tokens = new Utf8TokenBuffer(bytes, symbols, Math.max(16, limit / 4));
+        while (scanToken()) {
+            tokens.add(kind, start, current - start, tokenLine, tokenSymbol);
+        }
+        tokens.addEnd(limit, line);
+        return tokens;
+    }
+
+    private boolean scanToken() {
+        kind = null;
+        while (kind == null && current < limit) {
+            this.start = current;
+            parse();
+        }
+        return kind != null;
+    }
+
+    private Token token() {
+        if (kind == TokenType.IDENTIFIER) {
+            return Token.builder().lexeme(symbols.getName(tokenSymbol)).kind(kind).line(tokenLine)
+                    .symbol(tokenSymbol).build();
+        }
+        String lexeme = text();
+        return Token.builder().lexeme(lexeme).kind(kind).value(Scanner.value(kind, lexeme)).line(tokenLine).build();
+    }
+
+    private String text() {
+        return Utf8TokenBuffer.decode(bytes, start, current - start);
+    }
+
+    private void parse() {
+        byte b = bytes.get(current++);
+        switch (b) {
+            case '+': addToken(match('+') ? TokenType.INCREMENT : TokenType.PLUS); break;
+            case '-': addToken(match('-') ? TokenType.DECREMENT : TokenType.MINUS); break;
+            case '*': addToken(TokenType.STAR); break;
+            case '/': addToken(TokenType.SLASH); break;
+            case '(': addToken(TokenType.LEFT_PAREN); break;
+            case ')': addToken(TokenType.RIGHT_PAREN); break;
+            case '{': addToken(TokenType.LEFT_BRACE); break;
+            case '}': addToken(TokenType.RIGHT_BRACE); break;
+            case ';': addToken(TokenType.SEMICOLON); break;
+            case '.': addToken(TokenType.DOT); break;
+            case ',': addToken(TokenType.COMMA); break;
+            case '!': addToken(match('=') ? TokenType.BANG_EQUAL : TokenType.BANG); break;
+            case '>': addToken(match('=') ? TokenType.GREATER_EQUAL : TokenType.GREATER); break;
+            case '<': addToken(match('=') ? TokenType.LESS_EQUAL : TokenType.LESS); break;
+            case '=': addToken(match('=') ? TokenType.EQUAL_EQUAL : TokenType.EQUAL); break;
+            case '&': addToken(match('&') ? TokenType.AND : TokenType.BIT_AND); break;
+            case '|': addToken(match('|') ? TokenType.OR : TokenType.BIT_OR); break;
+            case '"': string(); break;
+            case '\t':
+            case '\r':
+            case ' ': break;
+            case '\n': line += 1; break;
+            default:
+                char ch = b >= 0 ? (char) b : decode(start);
+                if (b < 0) {
+                    current = start + width;
+                }
+                if (Scanner.isDigit(ch)) {
+                    numeric();
+                } else if (Scanner.isIdentifierStart(ch)) {
+                    identifier();
+                } else {
+                    error(Diagnostic.Kind.UNKNOWN_CHARACTER, line);
+                }
+            break;
+        }
+    }
+
+    /**
+     * Decodes the identifier into {@link #name}, hashing it on the way, so it
+     * can be looked up among the keywords and interned like a char one.
+     */
+    private void identifier() {
+        int length = 0;
+        int hash = 0;
+        current = start;
+        while (current < limit) {
+            char ch = charAt(current);
+            if (!Scanner.isIdentifierPart(ch)) {
+                break;
+            }
+            if (length == name.length) {
+                name = Arrays.copyOf(name, length * 2);
+            }
+            name[length++] = ch;
+            hash = 31 * hash + ch;
+            current += width;
+        }
+        TokenType kind = Keywords.lookup(name, 0, length, hash);
+        addToken(kind);
+        if (kind == TokenType.IDENTIFIER) {
+            tokenSymbol = symbols.intern(name, 0, length, hash);
+        }
+    }
+
+    private void numeric() {
+        digits();
+        if (current + 1 < limit && bytes.get(current) == '.' && Scanner.isDigit(charAt(current + 1))) {
+            ++current;
+            digits();
+        }
+        for (int i = start; i < current; ++i) {
+            if (bytes.get(i) < 0) {
+                error(Diagnostic.Kind.INVALID_NUMBER, line);
+                return;
+            }
+        }
+        addToken(TokenType.NUMBER);
+    }
+
+    private void digits() {
+        while (current < limit && Scanner.isDigit(charAt(current))) {
+            current += width;
+        }
+    }
+
+    private void string() {
+        do {
+            if (check('\n')) {
+                line += 1;
+            }
+            advance();
+        } while (current < limit && !check('"'));
+        advance();
+        addToken(TokenType.STRING);
+        if (current - start < 2 || current >= limit && bytes.get(current - 1) != '"') {
+            error(Diagnostic.Kind.UNCLOSED_STRING, tokenLine);
+        }
+    }
+
+    private void error(Diagnostic.Kind kind, int line) {
+        CharSequence lexeme = new Utf8TokenBuffer.Utf8Chars(bytes, start, current - start);
+        diagnostics.report(new Diagnostic(kind, start, line, lexeme));
+    }
+
+    /**
+     * @return the char starting at byte {@code index}, its byte count in
+     *         {@link #width}
+     */
+    private char charAt(int index) {
+        byte b = bytes.get(index);
+        if (b >= 0) {
+            width = 1;
+            return (char) b;
+        }
+        return decode(index);
+    }
+
+    /**
+     * Decodes the two or three byte sequence at {@code index}.
+     *
+     * @return the char, {@link #REPLACEMENT} for a four byte or malformed
+     *         sequence; its byte count in {@link #width}
+     */
+    private char decode(int index) {
+        int lead = bytes.get(index) & 0xFF;
+        if (lead >= 0xC2 && lead <= 0xDF && index + 1 < limit) {
+            int b1 = bytes.get(index + 1) & 0xFF;
+            if ((b1 & 0xC0) == 0x80) {
+                width = 2;
+                return (char) ((lead & 0x1F) << 6 | b1 & 0x3F);
+            }
+        } else if (lead >= 0xE0 && lead <= 0xEF && index + 2 < limit) {
+            int b1 = bytes.get(index + 1) & 0xFF;
+            int b2 = bytes.get(index + 2) & 0xFF;
+            int min = lead == 0xE0 ? 0xA0 : 0x80;
+            int max = lead == 0xED ? 0x9F : 0xBF;
+            if (b1 >= min && b1 <= max && (b2 & 0xC0) == 0x80) {
+                width = 3;
+                return (char) ((lead & 0x0F) << 12 | (b1 & 0x3F) << 6 | b2 & 0x3F);
+            }
+        } else if (lead >= 0xF0 && lead <= 0xF4 && index + 3 < limit) {
+            int b1 = bytes.get(index + 1) & 0xFF;
+            int min = lead == 0xF0 ? 0x90 : 0x80;
+            int max = lead == 0xF4 ? 0x8F : 0xBF;
+            if (b1 >= min && b1 <= max && (bytes.get(index + 2) & 0xC0) == 0x80
+                    && (bytes.get(index + 3) & 0xC0) == 0x80) {
+                width = 4;
+                return REPLACEMENT;
+            }
+        }
+        width = 1;
+        return REPLACEMENT;
+    }
+
+    private void advance() {
+        if (current < limit) {
+            ++current;
+        }
+    }
+
+    private boolean match(char ch) {
+        if (check(ch)) {
+            ++current;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean check(char ch) {
+        return current < limit && bytes.get(current) == ch;
+    }
+
+    private void addToken(TokenType type) {
+        this.kind = type;
+        this.tokenLine = line;
+        this.tokenSymbol = -1;
+    }
+}
@@ -0,0 +1,135 @@
+package org.parser.core.lexic;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.parser.token.SymbolTable;
+
+/**
+ * Tokens of a UTF-8 source, see {@link Utf8Scanner}. Offsets and lengths
+ * count bytes; an ASCII lexeme is a view of its bytes, others are decoded
+ * when asked for.
+ */
+final class Utf8TokenBuffer extends TokenBuffer {
+    private final ByteBuffer source;
+
+    Utf8TokenBuffer(ByteBuffer source, SymbolTable symbols, int capacity) {
+        super(symbols, capacity);
+        this.source = source;
+    }
+
+    @Override
+    CharSequence lexeme(int start, int length) {
+        return isAscii(start, length) ? new AsciiChars(source.slice(start, length)) : text(start, length);
+    }
+
+    @Override
+    boolean lexemeEquals(int start, int length, String text) {
+        if (!isAscii(start, length)) {
+            return text(start, length).equals(text);
+        }
+        if (length != text.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; ++i) {
+            if (source.get(start + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    String text(int start, int length) {
+        return decode(source, start, length);
+    }
+
+    static String decode(ByteBuffer source, int start, int length) {
+        if (source.hasArray()) {
+            return new String(source.array(), source.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        source.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean isAscii(int start, int length) {
+        for (int i = start, end = start + length; i < end; ++i) {
+            if (source.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ASCII bytes read as chars.
+     */
+    private static class AsciiChars implements CharSequence {
+        private final ByteBuffer bytes;
+
+        private AsciiChars(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes.get(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new AsciiChars(bytes.slice(start, end - start));
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder(this).toString();
+        }
+    }
+
+    /**
+     * UTF-8 bytes of the source, decoded when first read, e.g. the lexeme of
+     * an error whose message may never be formatted.
+     */
+    static class Utf8Chars implements CharSequence {
+        private final ByteBuffer source;
+        private final int start;
+        private final int length;
+        private String text;
+
+        Utf8Chars(ByteBuffer source, int start, int length) {
+            this.source = source;
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            if (text == null) {
+                text = decode(source, start, length);
+            }
+            return text;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package org.parser.core.lexic;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API flavour of {@link CharRuns}. Only referenced once the
+ * {@code jdk.incubator.vector} module is known to be present.
+ * <p>
+ * Most runs are short, so the first chars of a run are tested one by one
+ * and only a run that is still going after them is handed to the vectors.
+ */
+final class VectorCharRuns extends CharRuns {
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int SCALAR_PREFIX = 4;
+
+    /**
+     * @return the runs, or {@code null} if the platform has no vectors wider
+     *         than a few chars
+     */
+    static CharRuns create() {
+        return SPECIES.length() >= 8 ? new VectorCharRuns() : null;
+    }
+
+    @Override
+    int blanks(char[] chars, int from, int to) {
+        int i = from;
+        for (int end = Math.min(to, from + SCALAR_PREFIX); i < end; ++i) {
+            if (!isBlank(chars[i])) {
+                return i;
+            }
+        }
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            ShortVector block = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> other = block.compare(VectorOperators.NE, ' ')
+                    .and(block.compare(VectorOperators.NE, '\t'))
+                    .and(block.compare(VectorOperators.NE, '\r'));
+            if (other.anyTrue()) {
+                return i + other.firstTrue();
+            }
+        }
+        while (i < to && isBlank(chars[i])) {
+            ++i;
+        }
+        return i;
+    }
+
+    @Override
+    int digits(char[] chars, int from, int to) {
+        int i = from;
+        for (int end = Math.min(to, from + SCALAR_PREFIX); i < end; ++i) {
+            if (!isAsciiDigit(chars[i])) {
+                return i;
+            }
+        }
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            VectorMask<Short> other = ShortVector.fromCharArray(SPECIES, chars, i)
+                    .sub((short) '0')
+                    .compare(VectorOperators.UNSIGNED_GE, 10);
+            if (other.anyTrue()) {
+                return i + other.firstTrue();
+            }
+        }
+        while (i < to && isAsciiDigit(chars[i])) {
+            ++i;
+        }
+        return i;
+    }
+
+    @Override
+    int identifierChars(char[] chars, int from, int to) {
+        int i = from;
+        for (int end = Math.min(to, from + SCALAR_PREFIX); i < end; ++i) {
+            if (!isAsciiIdentifierChar(chars[i])) {
+                return i;
+            }
+        }
+        for (int bound = to - SPECIES.length(); i <= bound; i += SPECIES.length()) {
+            ShortVector block = ShortVector.fromCharArray(SPECIES, chars, i);
+            VectorMask<Short> letter = block.or((short) 0x20).sub((short) 'a').compare(VectorOperators.UNSIGNED_LT, 26);
+            VectorMask<Short> digit = block.sub((short) '0').compare(VectorOperators.UNSIGNED_LT, 10);
+            VectorMask<Short> other = letter.or(digit)
+                    .or(block.compare(VectorOperators.EQ, '_'))
+                    .or(block.compare(VectorOperators.EQ, '$'))
+                    .not();
+            if (other.anyTrue()) {
+                return i + other.firstTrue();
+            }
+        }
+        while (i < to && isAsciiIdentifierChar(chars[i])) {
+            ++i;
+        }
+        return i;
+    }
+}
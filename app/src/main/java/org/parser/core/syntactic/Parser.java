@@ -1,15 +1,18 @@
 package org.parser.core.syntactic;
 
 import org.parser.token.Token;
+import org.parser.token.TokenSource;
 import org.parser.token.TokenType;
 import org.parser.core.nodes.Expr;
 import org.parser.core.nodes.Stmt;
-import org.parser.error.RuntimeError;
+import org.parser.error.Diagnostic;
+import org.parser.error.Diagnostics;
 
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * program -> declaration* EOF ;
@@ -47,13 +50,36 @@ import java.util.Optional;
  * IDENTIFIER ;
  */
 public class Parser {
-    private final List<Token> tokens;
-    private int current;
+    private static final ParseError PARSE_ERROR = new ParseError();
+    private final TokenSource tokens;
+    private final Diagnostics diagnostics;
+    private Token current;
+    private Token previous;
 
     public Parser(List<Token> tokens) {
-        tokens = Optional.ofNullable(tokens).orElse(new ArrayList<>());
-        this.tokens = new ArrayList<>(tokens);
-        this.current = 0;
+        this(TokenSource.of(new ArrayList<>(Optional.ofNullable(tokens).orElse(new ArrayList<>()))));
+    }
+
+    /**
+     * Parses tokens as they are pulled from the source, e.g. a {@link
+     * org.parser.core.lexic.Scanner}, keeping only the current and the
+     * previous token.
+     *
+     * @param tokens token source
+     */
+    public Parser(TokenSource tokens) {
+        this(tokens, new Diagnostics());
+    }
+
+    /**
+     * @param tokens      token source
+     * @param diagnostics receives the syntax errors, after each of which the
+     *                    declaration is skipped
+     */
+    public Parser(TokenSource tokens, Diagnostics diagnostics) {
+        this.tokens = tokens;
+        this.diagnostics = diagnostics;
+        this.current = tokens.nextToken();
     }
 
     public List<Expr> parseExpr() {
@@ -63,8 +89,8 @@ public class Parser {
                 Expr expr = expression();
                 expressions.add(expr);
                 consume(TokenType.SEMICOLON, "Expected ';'");
-            } catch (RuntimeError re) {
-                System.out.println(re.getMessage());
+            } catch (ParseError e) {
+                // reported already
             }
         }
         return expressions;
@@ -72,10 +98,22 @@ public class Parser {
 
     public List<Stmt> parseStmt() {
         List<Stmt> statements = new ArrayList<>();
+        parseStmt(statements::add);
+        return statements;
+    }
+
+    /**
+     * Hands every top-level declaration to the consumer as soon as it is
+     * parsed, so it can be processed before the rest of the source is read.
+     * Declarations that failed to parse are passed as {@code null}, as in
+     * {@link #parseStmt()}.
+     *
+     * @param consumer receives the declarations in source order
+     */
+    public void parseStmt(Consumer<Stmt> consumer) {
         while (isNotEnd()) {
-            statements.add(declaration());
+            consumer.accept(declaration());
         }
-        return statements;
     }
 
     /**
@@ -92,8 +130,7 @@ public class Parser {
                 return funDeclaration();
             }
             return statement();
-        } catch (RuntimeError re) {
-            System.out.println(re.getMessage());
+        } catch (ParseError e) {
             synchronize();
             return null;
         }
@@ -111,7 +148,7 @@ public class Parser {
         if (!check(TokenType.RIGHT_PAREN)) {
             do {
                 if (arguments.size() > 255) {
-                    throw new RuntimeError("Too many arguments in function declaration");
+                    throw error("Too many arguments in function declaration");
                 }
                 arguments.add(consume(TokenType.IDENTIFIER, "Expected argument name"));
             } while (match(TokenType.COMMA));
@@ -307,7 +344,7 @@ public class Parser {
                 Token name = ((Expr.VariableExpr) expr).getName();
                 return new Expr.AssignExpr(name, value);
             }
-            throw new RuntimeError(equals, "Invalid assignment target.");
+            throw error(equals, "Invalid assignment target.");
         }
         return expr;
     }
@@ -473,7 +510,7 @@ public class Parser {
         if (!check(TokenType.RIGHT_PAREN)) {
             do {
                 if (arguments.size() > 255) {
-                    throw new RuntimeError("Too many arguments");
+                    throw error("Too many arguments");
                 }
                 arguments.add(expression());
             } while (match(TokenType.COMMA));
@@ -507,7 +544,7 @@ public class Parser {
 
     Token consume(TokenType type, String msg) {
         if (!check(type)) {
-            throw new RuntimeError(peek(), msg);
+            throw error(peek(), msg);
         }
         return advance();
     }
@@ -527,29 +564,54 @@ public class Parser {
     }
 
     Token peek() {
-        return tokens.get(current);
+        return current;
     }
 
     Token advance() {
         if (isNotEnd()) {
-            return tokens.get(current++);
+            previous = current;
+            current = tokens.nextToken();
+            return previous;
         }
         return previous();
     }
 
     Token previous() {
-        if (current > 0) {
-            return tokens.get(current - 1);
+        if (previous != null) {
+            return previous;
         }
-        throw new RuntimeError("Unsupported token access");
+        throw error("Unsupported token access");
+    }
+
+    private ParseError error(Token token, String text) {
+        diagnostics.report(new Diagnostic(token, text));
+        return PARSE_ERROR;
+    }
+
+    private ParseError error(String text) {
+        diagnostics.report(new Diagnostic(text));
+        return PARSE_ERROR;
     }
 
     boolean isNotEnd() {
-        return current < tokens.size() && tokens.get(current).getKind() != TokenType.EOF;
+        return current.getKind() != TokenType.EOF;
     }
 
     Token synchronize() {
         Token token = advance();
         return token;
     }
+
+    /**
+     * Unwinds the parser to the declaration being parsed once an error is
+     * reported. It is shared and has no stack trace, so it costs nothing to
+     * throw.
+     */
+    private static class ParseError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private ParseError() {
+            super(null, null, false, false);
+        }
+    }
 }
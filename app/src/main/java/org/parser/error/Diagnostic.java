@@ -0,0 +1,106 @@
+package org.parser.error;
+
+import org.parser.token.Token;
+
+/**
+ * An error found while scanning or parsing. Only the parts are recorded; the
+ * message is formatted when it is first asked for, the way a
+ * {@link RuntimeError} would have formatted it.
+ */
+public class Diagnostic {
+    public enum Kind {
+        UNKNOWN_CHARACTER("Unknown character"),
+        UNCLOSED_STRING("Unclosed string"),
+        INVALID_NUMBER("Invalid number"),
+        SYNTAX(null);
+
+        private final String text;
+
+        Kind(String text) {
+            this.text = text;
+        }
+    }
+
+    private final Kind kind;
+    private final int offset;
+    private final int line;
+    private final CharSequence lexeme;
+    private final Token token;
+    private final String text;
+    private String message;
+
+    /**
+     * Scanner error.
+     *
+     * @param offset offset of the offending chars in the source
+     * @param lexeme the offending chars, e.g. a view into the source
+     */
+    public Diagnostic(Kind kind, int offset, int line, CharSequence lexeme) {
+        this(kind, offset, line, lexeme, null, kind.text);
+    }
+
+    /**
+     * Syntax error at a token.
+     */
+    public Diagnostic(Token token, String text) {
+        this(Kind.SYNTAX, -1, token.getLine(), token.getLexeme(), token, text);
+    }
+
+    /**
+     * Syntax error without a location.
+     */
+    public Diagnostic(String text) {
+        this(Kind.SYNTAX, -1, -1, null, null, text);
+    }
+
+    private Diagnostic(Kind kind, int offset, int line, CharSequence lexeme, Token token, String text) {
+        this.kind = kind;
+        this.offset = offset;
+        this.line = line;
+        this.lexeme = lexeme;
+        this.token = token;
+        this.text = text;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return offset in the source, -1 for a syntax error since tokens do not
+     *         keep theirs
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return line of the error, -1 if it has no location
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the offending token of a syntax error, {@code null} otherwise
+     */
+    public Token getToken() {
+        return token;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public String getMessage() {
+        if (message == null) {
+            message = lexeme == null ? text : String.format("Error occured at line %d %s: %s", line, lexeme, text);
+        }
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return getMessage();
+    }
+}
@@ -0,0 +1,81 @@
+package org.parser.error;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects the errors of scanners and parsers as {@link Diagnostic} records,
+ * so that bad input costs no exceptions or formatted messages. The first
+ * {@code maxErrors} errors are kept and handed to the listener; the ones
+ * after them are only counted.
+ */
+public class Diagnostics {
+    private final int maxErrors;
+    private final Consumer<Diagnostic> listener;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private int errorCount;
+
+    /**
+     * Keeps every error without printing it.
+     */
+    public Diagnostics() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Keeps the first errors without printing them.
+     */
+    public Diagnostics(int maxErrors) {
+        this(maxErrors, diagnostic -> {
+        });
+    }
+
+    public Diagnostics(int maxErrors, Consumer<Diagnostic> listener) {
+        if (maxErrors < 0) {
+            throw new IllegalArgumentException("Negative error cap " + maxErrors);
+        }
+        this.maxErrors = maxErrors;
+        this.listener = listener;
+    }
+
+    /**
+     * @return diagnostics keeping and printing every error as it is
+     *         reported, for a command line run
+     */
+    public static Diagnostics printing() {
+        return new Diagnostics(Integer.MAX_VALUE, diagnostic -> System.out.println(diagnostic.getMessage()));
+    }
+
+    public void report(Diagnostic diagnostic) {
+        if (errorCount < maxErrors) {
+            diagnostics.add(diagnostic);
+            listener.accept(diagnostic);
+        }
+        if (errorCount < Integer.MAX_VALUE) {
+            ++errorCount;
+        }
+    }
+
+    /**
+     * @return the kept errors in the order they were reported
+     */
+    public List<Diagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    /**
+     * @return number of errors reported, kept or not
+     */
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return whether further errors are only counted
+     */
+    public boolean isFull() {
+        return errorCount >= maxErrors;
+    }
+}
@@ -0,0 +1,133 @@
+package org.parser.token;
+
+import java.util.Arrays;
+
+/**
+ * Interned identifiers. Every distinct name gets a dense integer id, in order
+ * of first appearance, and one canonical {@code String}, so later phases can
+ * compare and index identifiers by id instead of hashing strings.
+ * <p>
+ * Names are looked up straight from a char range of the source, so an
+ * identifier that was seen before costs no allocation. Not thread-safe.
+ */
+public class SymbolTable {
+    private String[] names = new String[16];
+    private int[] offsets = new int[17];
+    private char[] pool = new char[128];
+    private int[] slots = new int[64];
+    private int size;
+
+    /**
+     * @return id of the name spelled by {@code chars[start, start + length)},
+     *         added if it is new
+     */
+    public int intern(char[] chars, int start, int length) {
+        int hash = 0;
+        for (int i = start, end = start + length; i < end; ++i) {
+            hash = 31 * hash + chars[i];
+        }
+        return intern(chars, start, length, hash);
+    }
+
+    public int intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    /**
+     * @param hash {@code String.hashCode()} of the name, e.g. accumulated while
+     *             scanning it
+     * @return id of the name spelled by {@code chars[start, start + length)},
+     *         added if it is new
+     */
+    public int intern(char[] chars, int start, int length, int hash) {
+        int mask = slots.length - 2;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 2) & mask) {
+            int symbol = slots[slot + 1] - 1;
+            if (symbol == -1) {
+                symbol = add(chars, start, length);
+                slots[slot] = hash;
+                slots[slot + 1] = symbol + 1;
+                if (size * 4 > slots.length) {
+                    rehash();
+                }
+                return symbol;
+            }
+            if (slots[slot] == hash && Arrays.equals(pool, offsets[symbol], offsets[symbol + 1],
+                    chars, start, start + length)) {
+                return symbol;
+            }
+        }
+    }
+
+    /**
+     * @return id of the name, or -1 if it was never interned
+     */
+    public int find(String name) {
+        int hash = name.hashCode();
+        int mask = slots.length - 2;
+        for (int slot = mix(hash) & mask; slots[slot + 1] != 0; slot = (slot + 2) & mask) {
+            int symbol = slots[slot + 1] - 1;
+            if (slots[slot] == hash && names[symbol].equals(name)) {
+                return symbol;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return canonical instance of the name with the given id
+     */
+    public String getName(int symbol) {
+        if (symbol < 0 || symbol >= size) {
+            throw new IndexOutOfBoundsException("Symbol " + symbol + " out of " + size);
+        }
+        return names[symbol];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends the name to the char pool the lookups compare against and
+     * creates its canonical string.
+     */
+    private int add(char[] chars, int start, int length) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            offsets = Arrays.copyOf(offsets, size * 2 + 1);
+        }
+        int offset = offsets[size];
+        if (offset + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, offset + length));
+        }
+        System.arraycopy(chars, start, pool, offset, length);
+        names[size] = new String(chars, start, length);
+        offsets[size + 1] = offset + length;
+        return size++;
+    }
+
+    /**
+     * Doubles the table, which keeps the hash next to the id of every name so
+     * that a probe touches a single array.
+     */
+    private void rehash() {
+        int[] old = slots;
+        slots = new int[old.length * 2];
+        int mask = slots.length - 2;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i + 1] != 0) {
+                int slot = mix(old[i]) & mask;
+                while (slots[slot + 1] != 0) {
+                    slot = (slot + 2) & mask;
+                }
+                slots[slot] = old[i];
+                slots[slot + 1] = old[i + 1];
+            }
+        }
+    }
+
+    private static int mix(int hash) {
+        return (hash ^ (hash >>> 16)) << 1;
+    }
+}
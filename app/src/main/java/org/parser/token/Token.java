@@ -5,17 +5,20 @@ public class Token {
     private TokenType kind;
     private Object value;
     private int line;
+    private int symbol;
 
     private Token(
         String lexeme,
         TokenType kind,
         Object value,
-        int line
+        int line,
+        int symbol
     ) {
         this.lexeme = lexeme;
         this.kind = kind;
         this.value = value;
         this.line = line;
+        this.symbol = symbol;
     }
 
     public static Token.Builder builder() {
@@ -54,6 +57,18 @@ public class Token {
         this.line = line;
     }
 
+    /**
+     * @return id of an identifier in the scanner's {@link SymbolTable}, -1 for
+     *         other tokens
+     */
+    public int getSymbol() {
+        return this.symbol;
+    }
+
+    public void setSymbol(int symbol) {
+        this.symbol = symbol;
+    }
+
     @Override
     public String toString() {
         return kind + " " + lexeme + " " + value;
@@ -64,6 +79,7 @@ public class Token {
         private TokenType kind;
         private Object value;
         private int line;
+        private int symbol = -1;
     
         public Builder lexeme(String lexeme) {
             this.lexeme = lexeme;
@@ -85,8 +101,13 @@ public class Token {
             return this;
         }
 
+        public Builder symbol(int symbol) {
+            this.symbol = symbol;
+            return this;
+        }
+
         public Token build() {
-            return new Token(lexeme, kind, value, line);
+            return new Token(lexeme, kind, value, line, symbol);
         }
     }
 
@@ -0,0 +1,36 @@
+package org.parser.token;
+
+import java.util.List;
+
+/**
+ * Pull-based supply of tokens, consumed one at a time.
+ */
+public interface TokenSource {
+    /**
+     * @return the next token; once the input is exhausted an {@code EOF}
+     *         token on every call
+     */
+    Token nextToken();
+
+    /**
+     * @return source handing out the tokens of the list, then {@code EOF}
+     */
+    static TokenSource of(List<Token> tokens) {
+        return new TokenSource() {
+            private int current;
+            private Token eof;
+
+            @Override
+            public Token nextToken() {
+                if (current < tokens.size()) {
+                    return tokens.get(current++);
+                }
+                if (eof == null) {
+                    int line = tokens.isEmpty() ? 1 : tokens.get(tokens.size() - 1).getLine();
+                    eof = Token.builder().lexeme("").kind(TokenType.EOF).line(line).build();
+                }
+                return eof;
+            }
+        };
+    }
+}
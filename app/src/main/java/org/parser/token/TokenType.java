@@ -49,10 +49,10 @@ public enum TokenType {
 
     ;
 
-    private static final Map<String, TokenType> typesMap = Stream.of(values())
-            .collect(Collectors.toMap(v -> v.name().toLowerCase(), Function.identity()));
+    private static final Map<String, TokenType> typesMap = Collections.unmodifiableMap(Stream.of(values())
+            .collect(Collectors.toMap(v -> v.name().toLowerCase(), Function.identity())));
 
     public static Map<String, TokenType> getTypesMap() {
-        return Collections.unmodifiableMap(typesMap);
+        return typesMap;
     }
 }
@@ -0,0 +1,69 @@
+package org.parser.AhoCorasik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+public class BatchSearchTest {
+    private final PatternSearch patternSearch = new PatternSearch(new String[]{"error", "warn"});
+
+    // Matches are returned per document id
+    @Test
+    public void test_search_documents() throws InterruptedException {
+        Map<String, String> documents = new HashMap<>();
+        documents.put("a", "error: disk full, error");
+        documents.put("b", "all good");
+        documents.put("c", "warn");
+        Map<String, MatchCollector> result = new BatchSearch(patternSearch).search(documents);
+
+        assertEquals(3, result.size());
+        assertEquals(2, result.get("a").size());
+        assertEquals(18, result.get("a").getStart(1));
+        assertEquals(0, result.get("b").size());
+        assertEquals(1, result.get("c").getPatternId(0));
+    }
+
+    // A slow sink limits the number of batches in flight
+    @Test
+    public void test_search_back_pressure() throws InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        AtomicInteger read = new AtomicInteger();
+        AtomicInteger delivered = new AtomicInteger();
+        AtomicInteger maxAhead = new AtomicInteger();
+        try {
+            new BatchSearch(patternSearch, pool, 10, 3).search(
+                    IntStream.range(0, 1000).peek(i -> read.incrementAndGet()).boxed(),
+                    i -> i % 7 == 0 ? "warn " + i : "line " + i,
+                    (i, matches) -> {
+                        maxAhead.accumulateAndGet(read.get() - delivered.incrementAndGet(), Math::max);
+                        assertEquals(i % 7 == 0 ? 1 : 0, matches.size());
+                    });
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(1000, delivered.get());
+        assertTrue(maxAhead.get() <= 30, "read ahead " + maxAhead.get());
+    }
+
+    // A failing document fails the whole search
+    @Test
+    public void test_search_failure() {
+        BatchSearch batchSearch = new BatchSearch(patternSearch);
+
+        assertThrows(IllegalStateException.class, () -> batchSearch.search(IntStream.range(0, 100).boxed(), i -> {
+            if (i == 42) {
+                throw new IllegalStateException("bad document");
+            }
+            return "text";
+        }, (i, matches) -> { }));
+    }
+}
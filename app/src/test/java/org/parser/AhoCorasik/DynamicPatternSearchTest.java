@@ -0,0 +1,91 @@
+package org.parser.AhoCorasik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+public class DynamicPatternSearchTest {
+    // Added patterns are found together with the initial ones
+    @Test
+    public void test_add_patterns() {
+        DynamicPatternSearch search = new DynamicPatternSearch(new String[]{"he", "she"});
+        search.add("hers", "he");
+        Map<String, List<Integer>> result = search.search("ushers");
+
+        assertEquals(3, result.size());
+        assertEquals(Arrays.asList(2), result.get("he"));
+        assertEquals(Arrays.asList(1), result.get("she"));
+        assertEquals(Arrays.asList(2), result.get("hers"));
+    }
+
+    // Removed patterns are no longer reported, whichever automaton holds them
+    @Test
+    public void test_remove_patterns() {
+        DynamicPatternSearch search = new DynamicPatternSearch(new String[]{"he", "she"});
+        search.add("hers");
+        search.remove("she", "hers", "missing");
+        Map<String, List<Integer>> result = search.search("ushers");
+
+        assertEquals(1, result.size());
+        assertEquals(Arrays.asList(2), result.get("he"));
+        assertFalse(search.contains("she"));
+
+        search.add("she");
+        assertEquals(Arrays.asList(1), search.search("ushers").get("she"));
+    }
+
+    // Earlier snapshots keep their pattern set after updates
+    @Test
+    public void test_snapshot_is_immutable() {
+        DynamicPatternSearch search = new DynamicPatternSearch(new String[]{"a"});
+        DynamicPatternSearch.Snapshot before = search.snapshot();
+        search.add("b");
+        search.remove("a");
+
+        assertTrue(search.snapshot().getVersion() > before.getVersion());
+        assertEquals(Arrays.asList(0), before.search("ab").get("a"));
+        assertNull(before.search("ab").get("b"));
+        assertNull(search.search("ab").get("a"));
+        assertEquals(Arrays.asList(1), search.search("ab").get("b"));
+    }
+
+    // Pattern ids of a snapshot cover the patterns of every level
+    @Test
+    public void test_snapshot_ids() {
+        DynamicPatternSearch search = new DynamicPatternSearch(new String[]{"alpha", "beta", "gamma"});
+        search.add("d");
+        search.add("e");
+        DynamicPatternSearch.Snapshot snapshot = search.snapshot();
+        List<String> words = new ArrayList<>();
+        for (int id = 0; id < snapshot.getWordsCount(); ++id) {
+            words.add(snapshot.getWord(id));
+        }
+
+        assertEquals(5, words.size());
+        assertTrue(words.containsAll(Arrays.asList("alpha", "beta", "gamma", "d", "e")));
+    }
+
+    // Many updates trigger merges and rebuilds without losing patterns
+    @Test
+    public void test_many_updates() {
+        DynamicPatternSearch search = new DynamicPatternSearch(null);
+        for (int i = 0; i < 2000; ++i) {
+            search.add("p" + i + ";");
+            if (i % 3 == 0) {
+                search.remove("p" + (i / 2) + ";");
+            }
+        }
+        for (int i = 0; i < 2000; i += 7) {
+            String word = "p" + i + ";";
+            assertEquals(search.contains(word), search.search("x" + word).containsKey(word));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package org.parser.AhoCorasik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class ParallelFileSearchTest {
+    // Matches crossing segment boundaries are reported once, in offset order
+    @Test
+    public void test_search_across_segments() throws IOException {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"abcd", "cd", "d"});
+        Path file = Files.createTempFile("pattern-search", ".txt");
+        try {
+            Files.write(file, "xxabcdxabcd".getBytes(StandardCharsets.ISO_8859_1));
+            List<PatternMatch> expected = Arrays.asList(
+                    new PatternMatch(0, 2, 6),
+                    new PatternMatch(1, 4, 6),
+                    new PatternMatch(2, 5, 6),
+                    new PatternMatch(0, 7, 11),
+                    new PatternMatch(1, 9, 11),
+                    new PatternMatch(2, 10, 11));
+            ParallelFileSearch search = new ParallelFileSearch(patternSearch);
+            for (int segments = 1; segments <= 11; ++segments) {
+                assertEquals(expected, search.search(file, segments));
+            }
+            assertEquals(expected, search.search(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // An empty file has no matches
+    @Test
+    public void test_search_empty_file() throws IOException {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"a"});
+        Path file = Files.createTempFile("pattern-search", ".txt");
+        try {
+            assertTrue(new ParallelFileSearch(patternSearch).search(file, 4).isEmpty());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // UTF-8 automaton searches the mapped bytes as UTF-8
+    @Test
+    public void test_search_utf8_file() throws IOException {
+        PatternSearch patternSearch = PatternSearch.builder().words(new String[]{"ёж"}).utf8(true).build();
+        Path file = Files.createTempFile("pattern-search", ".txt");
+        try {
+            Files.write(file, "ёж-ёж".getBytes(StandardCharsets.UTF_8));
+            List<PatternMatch> expected = Arrays.asList(new PatternMatch(0, 0, 4), new PatternMatch(0, 5, 9));
+            for (int segments = 1; segments <= 9; ++segments) {
+                assertEquals(expected, new ParallelFileSearch(patternSearch).search(file, segments));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.parser.AhoCorasik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.junit.jupiter.api.Test;
+
+public class PatternReplacerTest {
+    private final PatternSearch patternSearch = new PatternSearch(new String[]{"secret", "secret-key", "key"});
+
+    // All patterns are replaced in one pass, longest match first by default
+    @Test
+    public void test_replace() {
+        PatternReplacer replacer = new PatternReplacer(patternSearch, new String[]{"S", "SK", "K"});
+
+        assertEquals("a SK, S and K.", replacer.replace("a secret-key, secret and key."));
+        assertEquals("nothing", replacer.replace("nothing"));
+    }
+
+    // The match kind decides between overlapping matches
+    @Test
+    public void test_replace_match_kind() {
+        PatternReplacer replacer = new PatternReplacer(patternSearch, patternId -> "#" + patternId,
+                MatchKind.LEFTMOST_FIRST);
+        StringBuilder out = new StringBuilder(">");
+
+        assertEquals(3, replacer.replace("secret-key key", out));
+        assertEquals(">#0-#2 #2", out.toString());
+        assertThrows(IllegalArgumentException.class,
+                () -> new PatternReplacer(patternSearch, patternId -> "", MatchKind.ALL));
+    }
+
+    // Streaming gives the same output as replacing the whole text
+    @Test
+    public void test_replace_stream() throws IOException {
+        PatternReplacer replacer = new PatternReplacer(patternSearch, patternId -> "***", MatchKind.LEFTMOST_LONGEST);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+            text.append(i % 3 == 0 ? "secret-key=" : "secret=").append(i).append('\n');
+        }
+        StringWriter out = new StringWriter();
+
+        assertEquals(5000, replacer.replace(new StringReader(text.toString()), out));
+        assertEquals(replacer.replace(text), out.toString());
+    }
+}
@@ -0,0 +1,78 @@
+package org.parser.AhoCorasik;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+public class PatternSearchCacheTest {
+    // Equal pattern lists and options share one automaton
+    @Test
+    public void test_get_shares_automaton() {
+        PatternSearchCache cache = new PatternSearchCache(1 << 30);
+        PatternSearch first = cache.get(new String[]{"he", "she"});
+
+        assertSame(first, cache.get(new String[]{"he", "she"}));
+        assertNotSame(first, cache.get(new String[]{"she", "he"}));
+        assertNotSame(first, cache.get(PatternSearch.builder().words(new String[]{"he", "she"}).ignoreCase(true)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(3, cache.size());
+    }
+
+    // The least recently used automata are evicted by footprint
+    @Test
+    public void test_evicts_by_footprint() {
+        long footprint = new PatternSearch(new String[]{"a"}).memoryFootprint();
+        PatternSearchCache cache = new PatternSearchCache(2 * footprint);
+        PatternSearch a = cache.get(new String[]{"a"});
+        cache.get(new String[]{"b"});
+        cache.get(new String[]{"a"});
+        cache.get(new String[]{"c"});
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getFootprint() <= 2 * footprint);
+        assertSame(a, cache.get(new String[]{"a"}));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    // Concurrent misses for the same key build it once
+    @Test
+    public void test_concurrent_misses_build_once() throws Exception {
+        PatternSearchCache cache = new PatternSearchCache(1 << 30);
+        String[] words = new String[2000];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = "word" + i;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PatternSearch>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; ++i) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cache.get(words);
+                }));
+            }
+            start.countDown();
+            for (Future<PatternSearch> result : results) {
+                assertSame(results.get(0).get(), result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(7, cache.getHitCount());
+    }
+}
@@ -1,8 +1,20 @@
 package org.parser.AhoCorasik;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -54,4 +66,320 @@ public class PatternSearchTest {
         assertTrue(result.isEmpty());
     }
 
-}
\ No newline at end of file
+    // Falls back through several suffix links before finding a transition
+    @Test
+    public void test_search_follows_suffix_link_chain() {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"aaab", "ab", "b"});
+        Map<String, List<Integer>> result = patternSearch.search("aaaab");
+
+        assertEquals(Arrays.asList(1), result.get("aaab"));
+        assertEquals(Arrays.asList(3), result.get("ab"));
+        assertEquals(Arrays.asList(4), result.get("b"));
+    }
+
+    // Matches patterns outside of the ASCII range
+    @Test
+    public void test_search_unicode_patterns() {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"кот", "от", "\u2603"});
+        Map<String, List<Integer>> result = patternSearch.search("скоты \u2603");
+
+        assertEquals(Arrays.asList(1), result.get("кот"));
+        assertEquals(Arrays.asList(2), result.get("от"));
+        assertEquals(Arrays.asList(6), result.get("\u2603"));
+    }
+
+    // Footprint grows with the dictionary size, not with states * alphabet
+    @Test
+    public void test_memory_footprint_is_compact() {
+        String[] words = new String[20];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = String.valueOf((char) ('a' + i)).repeat(1000);
+        }
+        PatternSearch patternSearch = new PatternSearch(words);
+
+        assertTrue(patternSearch.memoryFootprint() < 1024 * 1024);
+        assertEquals(Arrays.asList(0), patternSearch.search("c".repeat(1000)).get(words[2]));
+    }
+
+    // More than 32 patterns are reported without aliasing each other
+    @Test
+    public void test_search_with_many_words() {
+        String[] words = new String[100];
+        for (int i = 0; i < words.length; ++i) {
+            words[i] = "w" + i + ";";
+        }
+        PatternSearch patternSearch = new PatternSearch(words);
+        Map<String, List<Integer>> result = patternSearch.search("w3;w99;w40;");
+
+        assertEquals(3, result.size());
+        assertEquals(Arrays.asList(0), result.get("w3;"));
+        assertEquals(Arrays.asList(3), result.get("w99;"));
+        assertEquals(Arrays.asList(7), result.get("w40;"));
+    }
+
+    // Streams a reader in chunks and finds matches across chunk boundaries
+    @Test
+    public void test_search_reader_across_chunks() throws IOException {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"needle", "le"});
+        String text = "x".repeat(8190) + "needle" + "y".repeat(20000) + "needle";
+        List<Long> starts = new ArrayList<>();
+        patternSearch.search(new StringReader(text), (patternId, start, end) -> {
+            if (patternId == 0) {
+                starts.add(start);
+                assertEquals(start + 6, end);
+            }
+            return true;
+        });
+
+        assertEquals(Arrays.asList(8190L, 28196L), starts);
+    }
+
+    // Decodes a byte channel and stops when the listener asks to
+    @Test
+    public void test_search_channel_stops_on_request() throws IOException {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"ёж"});
+        byte[] bytes = "ёж ёж ёж".getBytes(StandardCharsets.UTF_8);
+        List<Long> starts = new ArrayList<>();
+        patternSearch.search(Channels.newChannel(new ByteArrayInputStream(bytes)), StandardCharsets.UTF_8, (patternId, start, end) -> {
+            starts.add(start);
+            return starts.size() < 2;
+        });
+
+        assertEquals(Arrays.asList(0L, 3L), starts);
+    }
+
+    // Cursor carries the automaton state between chunks
+    @Test
+    public void test_cursor_carries_state() {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"abc"});
+        PatternSearch.Cursor cursor = patternSearch.cursor();
+        List<Long> starts = new ArrayList<>();
+        StreamMatchListener listener = (patternId, start, end) -> starts.add(start);
+        cursor.feed("xa".toCharArray(), 0, 2, listener);
+        cursor.feed("b".toCharArray(), 0, 1, listener);
+        cursor.feed("cabc".toCharArray(), 0, 4, listener);
+
+        assertEquals(Arrays.asList(1L, 4L), starts);
+        assertEquals(7, cursor.getPosition());
+    }
+
+    // UTF-8 automaton searches raw bytes and reports byte offsets
+    @Test
+    public void test_search_utf8_bytes() {
+        PatternSearch patternSearch = PatternSearch.builder().words(new String[]{"кот", "t"}).utf8(true).build();
+        byte[] bytes = "a кот t".getBytes(StandardCharsets.UTF_8);
+        Map<String, List<Integer>> result = patternSearch.search(bytes);
+
+        assertEquals(Arrays.asList(2), result.get("кот"));
+        assertEquals(Arrays.asList(9), result.get("t"));
+        assertTrue(patternSearch.memoryFootprint() < new PatternSearch(new String[]{"кот", "t"}).memoryFootprint());
+    }
+
+    // Only the region between position and limit of a buffer is searched
+    @Test
+    public void test_search_utf8_byte_buffer_region() {
+        PatternSearch patternSearch = PatternSearch.builder().words(new String[]{"ab"}).utf8(true).build();
+        ByteBuffer buffer = ByteBuffer.wrap("abxabxab".getBytes(StandardCharsets.UTF_8));
+        buffer.position(1).limit(7);
+
+        assertEquals(Arrays.asList(2), patternSearch.search(buffer).get("ab"));
+        assertEquals(1, buffer.position());
+    }
+
+    // UTF-8 automaton does not accept chars
+    @Test
+    public void test_search_utf8_rejects_string() {
+        PatternSearch patternSearch = PatternSearch.builder().words(new String[]{"ab"}).utf8(true).build();
+
+        assertThrows(IllegalStateException.class, () -> patternSearch.search("ab"));
+    }
+
+    // Collector keeps matches in end offset order and can be reused
+    @Test
+    public void test_search_into_collector() {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"he", "she", "hers"});
+        MatchCollector collector = new MatchCollector(1);
+        patternSearch.search("ushers", collector);
+
+        assertEquals(3, collector.size());
+        assertEquals(1, collector.getPatternId(0));
+        assertEquals(1, collector.getStart(0));
+        assertEquals(4, collector.getEnd(0));
+        assertEquals(0, collector.getPatternId(1));
+        assertEquals(2, collector.getStart(1));
+        assertEquals(2, collector.getPatternId(2));
+        assertEquals(6, collector.getEnd(2));
+
+        collector.clear();
+        patternSearch.search("he", collector);
+        assertEquals(1, collector.size());
+        assertEquals(0, collector.getPatternId(0));
+    }
+
+    // Listener stops the search by returning false
+    @Test
+    public void test_search_listener_stops() {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"a"});
+        int[] calls = new int[1];
+        boolean completed = patternSearch.search("aaaa", (patternId, start, end) -> ++calls[0] < 2);
+
+        assertFalse(completed);
+        assertEquals(2, calls[0]);
+    }
+
+    // Case-insensitive automaton matches any mix of cases, including non-ASCII
+    @Test
+    public void test_search_ignore_case() {
+        PatternSearch patternSearch = PatternSearch.builder()
+                .words(new String[]{"Error", "ошибка", "ΣΟΦΙΑ"})
+                .ignoreCase(true)
+                .build();
+        Map<String, List<Integer>> result = patternSearch.search("ERROR: ОшИбКа, error, σοφια");
+
+        assertEquals(Arrays.asList(0, 15), result.get("Error"));
+        assertEquals(Arrays.asList(7), result.get("ошибка"));
+        assertEquals(Arrays.asList(22), result.get("ΣΟΦΙΑ"));
+    }
+
+    // Chars of one folding class share transitions, e.g. the Kelvin sign and 'k'
+    @Test
+    public void test_search_ignore_case_folding_class() {
+        PatternSearch patternSearch = PatternSearch.builder().words(new String[]{"ok"}).ignoreCase(true).build();
+
+        assertEquals(Arrays.asList(0, 2, 4), patternSearch.search("oKo\u212Aok").get("ok"));
+    }
+
+    // UTF-8 automaton folds ASCII letters
+    @Test
+    public void test_search_utf8_ignore_case() {
+        PatternSearch patternSearch = PatternSearch.builder()
+                .words(new String[]{"warn"})
+                .utf8(true)
+                .ignoreCase(true)
+                .build();
+
+        assertEquals(Arrays.asList(0, 5), patternSearch.search("WARN Warn".getBytes(StandardCharsets.UTF_8)).get("warn"));
+    }
+
+    // Saved automaton is searched straight from the mapped file
+    @Test
+    public void test_save_and_load() throws IOException {
+        PatternSearch built = new PatternSearch(new String[]{"he", "she", "his", "hers", "ёж"});
+        Path file = Files.createTempFile("pattern-search", ".bin");
+        try {
+            built.save(file);
+            PatternSearch loaded = PatternSearch.load(file);
+
+            assertEquals(built.search("ahishers ёжик"), loaded.search("ahishers ёжик"));
+            assertEquals(5, loaded.getWordsCount());
+            assertEquals("ёж", loaded.getWord(4));
+            assertEquals(built.memoryFootprint(), loaded.memoryFootprint());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Mode flags survive saving
+    @Test
+    public void test_save_and_load_utf8_ignore_case() throws IOException {
+        PatternSearch built = PatternSearch.builder().words(new String[]{"warn"}).utf8(true).ignoreCase(true).build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        built.save(Channels.newChannel(out));
+        PatternSearch loaded = PatternSearch.load(ByteBuffer.wrap(out.toByteArray()));
+
+        assertTrue(loaded.isUtf8());
+        assertTrue(loaded.isIgnoreCase());
+        assertEquals(Arrays.asList(0, 5), loaded.search("WARN wArN".getBytes(StandardCharsets.UTF_8)).get("warn"));
+    }
+
+    // Loading something else is rejected
+    @Test
+    public void test_load_rejects_foreign_data() {
+        assertThrows(IllegalArgumentException.class, () -> PatternSearch.load(ByteBuffer.wrap(new byte[64])));
+    }
+
+    // Match kinds pick different matches from the same overlapping set
+    @Test
+    public void test_search_match_kinds() {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"abcd", "ab", "bcdef", "abcdefg", "ef"});
+        String text = "xabcdefz";
+
+        assertEquals(Arrays.asList("ab@1", "ef@5"), matches(patternSearch, text, MatchKind.NON_OVERLAPPING));
+        assertEquals(Arrays.asList("abcd@1", "ef@5"), matches(patternSearch, text, MatchKind.LEFTMOST_FIRST));
+        assertEquals(Arrays.asList("abcd@1", "ef@5"), matches(patternSearch, text, MatchKind.LEFTMOST_LONGEST));
+        assertEquals(Arrays.asList("abcdefg@1"), matches(patternSearch, "xabcdefg", MatchKind.LEFTMOST_LONGEST));
+        assertEquals(Arrays.asList("abcd@1", "ef@5"), matches(patternSearch, "xabcdefg", MatchKind.LEFTMOST_FIRST));
+        assertEquals(5, matches(patternSearch, "xabcdefg", MatchKind.ALL).size());
+    }
+
+    // Match kinds apply to byte searches too
+    @Test
+    public void test_search_utf8_match_kind() {
+        PatternSearch patternSearch = PatternSearch.builder().words(new String[]{"ё", "ёж", "жик"}).utf8(true).build();
+        List<Integer> starts = new ArrayList<>();
+        patternSearch.search(ByteBuffer.wrap("ёжик".getBytes(StandardCharsets.UTF_8)), MatchKind.LEFTMOST_LONGEST,
+                (patternId, start, end) -> starts.add(patternId * 100 + start));
+
+        assertEquals(Arrays.asList(100), starts);
+    }
+
+    // Prefiltered search finds the same matches, across chunks and in streams
+    @Test
+    public void test_search_prefilter() throws IOException {
+        String[] words = {"needle", "nest", "Ölß"};
+        PatternSearch plain = new PatternSearch(words);
+        PatternSearch filtered = PatternSearch.builder().words(words).prefilter(true).build();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 3000; ++i) {
+            text.append(i % 97 == 0 ? "needlenest" : "hay").append(i % 501 == 0 ? "Ölß" : " ");
+        }
+
+        assertTrue(filtered.isPrefiltered());
+        assertEquals(plain.search(text.toString()), filtered.search(text.toString()));
+        List<Long> starts = new ArrayList<>();
+        filtered.search(new StringReader(text.toString()), (patternId, start, end) -> starts.add(start));
+        assertEquals(plain.search(text.toString()).values().stream().mapToInt(List::size).sum(), starts.size());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        filtered.save(Channels.newChannel(out));
+        assertTrue(PatternSearch.load(ByteBuffer.wrap(out.toByteArray())).isPrefiltered());
+    }
+
+    // The empty pattern matches everywhere, so there is nothing to skip
+    @Test
+    public void test_search_prefilter_empty_pattern() {
+        PatternSearch patternSearch = PatternSearch.builder().words(new String[]{"", "a"}).prefilter(true).build();
+
+        assertFalse(patternSearch.isPrefiltered());
+        assertEquals(Arrays.asList(1, 2, 3), patternSearch.search("bab").get(""));
+    }
+
+    // Existence and counting without match lists
+    @Test
+    public void test_contains_any_and_count_matches() {
+        PatternSearch patternSearch = new PatternSearch(new String[]{"he", "she", "hers"});
+
+        assertTrue(patternSearch.containsAny("ushers"));
+        assertFalse(patternSearch.containsAny("usual"));
+        assertFalse(patternSearch.containsAny(""));
+        assertTrue(Arrays.equals(new int[]{2, 1, 1}, patternSearch.countMatches("ushers, he")));
+        int[] counts = new int[3];
+        patternSearch.countMatches("he", counts);
+        patternSearch.countMatches("the", counts);
+        assertTrue(Arrays.equals(new int[]{2, 0, 0}, counts));
+        assertThrows(IllegalArgumentException.class, () -> patternSearch.countMatches("he", new int[2]));
+    }
+
+    @Test
+    public void test_contains_any_utf8() {
+        PatternSearch patternSearch = PatternSearch.builder().words(new String[]{"ёж"}).utf8(true).build();
+
+        assertTrue(patternSearch.containsAny(ByteBuffer.wrap("ёжик".getBytes(StandardCharsets.UTF_8))));
+        assertFalse(patternSearch.containsAny(ByteBuffer.wrap("ель".getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static List<String> matches(PatternSearch patternSearch, String text, MatchKind kind) {
+        List<String> res = new ArrayList<>();
+        patternSearch.search(text, kind, (patternId, start, end) -> res.add(patternSearch.getWord(patternId) + "@" + start));
+        return res;
+    }
+}
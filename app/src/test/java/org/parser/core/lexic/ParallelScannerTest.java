@@ -0,0 +1,87 @@
+package org.parser.core.lexic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.parser.error.Diagnostic;
+import org.parser.error.Diagnostics;
+import org.parser.token.SymbolTable;
+import org.parser.token.Token;
+
+public class ParallelScannerTest {
+    private static final String[] PIECES = {"var ", "x", "y1", " = ", "1.5", "42", ";\n", "\n", "\"str\"", "\"a\nb\"",
+            "\"\n\n\"", "\"", "print ", "if (", ") {", "}\n", "+", "==", "&&", "été", "#"};
+
+    @Test
+    public void test_scan_buffer_matches_scanner() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; ++round) {
+            StringBuilder source = new StringBuilder();
+            for (int i = random.nextInt(400); i > 0; --i) {
+                source.append(PIECES[random.nextInt(PIECES.length)]);
+            }
+            char[] chars = source.toString().toCharArray();
+            Diagnostics expectedDiagnostics = new Diagnostics(Integer.MAX_VALUE);
+            TokenBuffer expected = new Scanner(chars, new SymbolTable(), expectedDiagnostics).scanBuffer();
+            for (int chunks : new int[] {1, 2, 7, 50}) {
+                Diagnostics diagnostics = new Diagnostics(Integer.MAX_VALUE);
+                TokenBuffer tokens = new ParallelScanner().scanBuffer(chars, new SymbolTable(), diagnostics, chunks);
+                assertEqualTokens(expected, tokens);
+                assertEquals(expectedDiagnostics.getErrorCount(), diagnostics.getErrorCount());
+                for (int i = 0; i < expectedDiagnostics.getErrorCount(); ++i) {
+                    Diagnostic expectedDiagnostic = expectedDiagnostics.getDiagnostics().get(i);
+                    assertEquals(expectedDiagnostic.getOffset(), diagnostics.getDiagnostics().get(i).getOffset());
+                    assertEquals(expectedDiagnostic.getMessage(), diagnostics.getDiagnostics().get(i).getMessage());
+                }
+            }
+        }
+    }
+
+    // Indented lines: chunks stop at their end, splits inside strings catch up
+    @Test
+    public void test_indented_split_inside_string() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 2000; ++i) {
+            source.append("    var s").append(i).append(" = \"a\n    b\n\tc\";\n\t  print s").append(i).append(";\n");
+        }
+        char[] chars = source.toString().toCharArray();
+        TokenBuffer expected = new Scanner(chars, new SymbolTable()).scanBuffer();
+        for (int chunks : new int[] {3, 16, 101}) {
+            assertEqualTokens(expected,
+                    new ParallelScanner().scanBuffer(chars, new SymbolTable(), new Diagnostics(), chunks));
+        }
+    }
+
+    @Test
+    public void test_scan_matches_scanner() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 100000; ++i) {
+            source.append("var x").append(i % 1000).append(" = ").append(i).append(i % 100 == 0 ? " + \"a\nb\";\n" : ";\n");
+        }
+        char[] chars = source.toString().toCharArray();
+        List<Token> expected = new Scanner(chars).scan();
+        List<Token> tokens = new ParallelScanner().scan(chars);
+        assertEquals(expected.size(), tokens.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getLexeme(), tokens.get(i).getLexeme());
+            assertEquals(expected.get(i).getKind(), tokens.get(i).getKind());
+            assertEquals(expected.get(i).getValue(), tokens.get(i).getValue());
+            assertEquals(expected.get(i).getLine(), tokens.get(i).getLine());
+            assertEquals(expected.get(i).getSymbol(), tokens.get(i).getSymbol());
+        }
+    }
+
+    private static void assertEqualTokens(TokenBuffer expected, TokenBuffer tokens) {
+        assertEquals(expected.size(), tokens.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.getKind(i), tokens.getKind(i));
+            assertEquals(expected.getStart(i), tokens.getStart(i));
+            assertEquals(expected.getLength(i), tokens.getLength(i));
+            assertEquals(expected.getLine(i), tokens.getLine(i));
+            assertEquals(expected.getSymbol(i), tokens.getSymbol(i));
+        }
+    }
+}
@@ -6,13 +6,26 @@ import java.io.InputStreamReader;
 import java.util.stream.Collectors;
 import java.io.BufferedReader;
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.Test;
 import org.parser.core.lexic.Scanner;
+import org.parser.core.lexic.CharTokenBuffer;
+import org.parser.core.lexic.TokenBuffer;
+import org.parser.core.lexic.Utf8Scanner;
+import org.parser.error.Diagnostic;
+import org.parser.error.Diagnostics;
+import org.parser.token.SymbolTable;
 import org.parser.token.Token;
+import org.parser.token.TokenType;
 
 public class ScannerTest {
     @Test
@@ -36,4 +49,246 @@ public class ScannerTest {
             assertEquals(21, tokens.size());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void simpleTestNextTokenMatchesScan() {
+        char[] chars = "var a = \"s\";\nprint a + 1.5; ?\nfun f() {}".toCharArray();
+        List<Token> tokens = new Scanner(chars).scan();
+        Scanner scanner = new Scanner(chars);
+        for (Token expected : tokens) {
+            Token actual = scanner.nextToken();
+            assertEquals(expected.getKind(), actual.getKind());
+            assertEquals(expected.getLexeme(), actual.getLexeme());
+            assertEquals(expected.getValue(), actual.getValue());
+            assertEquals(expected.getLine(), actual.getLine());
+        }
+        assertEquals(TokenType.EOF, scanner.nextToken().getKind());
+    }
+
+    @Test
+    public void simpleTestScanPastEofIdentifier() {
+        List<Token> tokens = new Scanner("print eof; x".toCharArray()).scan();
+        assertEquals(5, tokens.size());
+        assertEquals(TokenType.EOF, tokens.get(1).getKind());
+        assertEquals("x", tokens.get(3).getLexeme());
+        assertEquals("", tokens.get(4).getLexeme());
+    }
+
+    @Test
+    public void simpleTestScanBufferMatchesScan() {
+        char[] chars = "var a = \"s\ns\";\nprint a + 1.5; ?\nfun f() { return non_sealed; } \"".toCharArray();
+        List<Token> tokens = new Scanner(chars).scan();
+        TokenBuffer buffer = new Scanner(chars).scanBuffer();
+        assertEquals(tokens.size(), buffer.size());
+        for (int i = 0; i < tokens.size(); ++i) {
+            Token expected = tokens.get(i);
+            Token actual = buffer.getToken(i);
+            assertEquals(expected.getKind(), buffer.getKind(i));
+            assertEquals(expected.getLexeme(), buffer.getLexeme(i).toString());
+            assertEquals(expected.getLexeme(), actual.getLexeme());
+            assertEquals(expected.getValue(), buffer.getValue(i));
+            assertEquals(expected.getLine(), buffer.getLine(i));
+            assertTrue(buffer.lexemeEquals(i, expected.getLexeme()));
+        }
+        assertEquals(TokenType.NON_SEALED, buffer.getKind(16));
+    }
+
+    @Test
+    public void simpleTestKeywordLiteralsHaveNoValue() {
+        char[] chars = "number string 1 \"s\"".toCharArray();
+        List<Token> tokens = new Scanner(chars).scan();
+        TokenBuffer buffer = new Scanner(chars).scanBuffer();
+        assertEquals(TokenType.NUMBER, tokens.get(0).getKind());
+        assertEquals(null, tokens.get(0).getValue());
+        assertEquals(TokenType.STRING, tokens.get(1).getKind());
+        assertEquals(null, buffer.getValue(1));
+        assertEquals(1.0, tokens.get(2).getValue());
+        assertEquals("s", buffer.getValue(3));
+    }
+
+    @Test
+    public void simpleTestIdentifiersAreInterned() {
+        StringBuilder source = new StringBuilder("var a = b; a = b + a;");
+        for (int i = 0; i < 1000; ++i) {
+            source.append(" x").append(i).append(" = a;");
+        }
+        Scanner scanner = new Scanner(source.toString().toCharArray());
+        List<Token> tokens = scanner.scan();
+        SymbolTable symbols = scanner.getSymbols();
+        assertEquals(1002, symbols.size());
+        assertEquals(0, tokens.get(1).getSymbol());
+        assertEquals(1, tokens.get(3).getSymbol());
+        assertTrue(tokens.get(1).getLexeme() == tokens.get(5).getLexeme());
+        assertEquals(-1, tokens.get(0).getSymbol());
+        assertEquals(symbols.find("x999"), tokens.get(tokens.size() - 5).getSymbol());
+        assertEquals(-1, symbols.find("y"));
+
+        TokenBuffer buffer = new Scanner(source.toString().toCharArray(), symbols).scanBuffer();
+        assertEquals(1002, symbols.size());
+        assertEquals(1, buffer.getSymbol(3));
+        assertTrue(buffer.getText(1) == symbols.getName(0));
+    }
+
+    @Test
+    public void simpleTestKeywordsMatchTypesMap() {
+        StringBuilder source = new StringBuilder();
+        for (String name : TokenType.getTypesMap().keySet()) {
+            source.append(name).append(' ').append(name).append("_ ");
+        }
+        source.append("été x1 _ $a");
+        List<Token> tokens = new Scanner(source.toString().toCharArray()).scan();
+        for (Token token : tokens.subList(0, tokens.size() - 1)) {
+            assertEquals(TokenType.getTypesMap().getOrDefault(token.getLexeme(), TokenType.IDENTIFIER), token.getKind());
+        }
+        assertEquals(2 * TokenType.values().length + 5, tokens.size());
+    }
+
+    @Test
+    public void simpleTestLongRuns() {
+        StringBuilder source = new StringBuilder();
+        List<String> lexemes = new ArrayList<>();
+        for (int length = 1; length < 70; ++length) {
+            String name = "x_$Z9".repeat(length).substring(0, length);
+            String accented = name.substring(0, length / 2) + "é" + name.substring(length / 2);
+            String number = "1234567890".repeat(length).substring(0, length);
+            for (String lexeme : List.of(name, accented, number, number + "." + number)) {
+                source.append(lexeme).append(" \t\r".repeat(length).substring(0, length)).append('\n');
+                lexemes.add(lexeme);
+            }
+        }
+        List<Token> tokens = new Scanner(source.toString().toCharArray()).scan();
+        assertEquals(lexemes.size() + 1, tokens.size());
+        for (int i = 0; i < lexemes.size(); ++i) {
+            assertEquals(lexemes.get(i), tokens.get(i).getLexeme());
+            assertEquals(i + 1, tokens.get(i).getLine());
+        }
+    }
+
+    @Test
+    public void simpleTestUtf8ScannerMatchesScan() throws IOException {
+        String source = "var été = 1.5 + x1;\nprint \"日本 😀\" + été;\n\tif (été >= 2) { x1 = été; } \"unclosed";
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        List<Token> expected = new Scanner(source.toCharArray()).scan();
+        List<Token> tokens = new Utf8Scanner(bytes).scan();
+        assertEquals(expected.size(), tokens.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getLexeme(), tokens.get(i).getLexeme());
+            assertEquals(expected.get(i).getKind(), tokens.get(i).getKind());
+            assertEquals(expected.get(i).getValue(), tokens.get(i).getValue());
+            assertEquals(expected.get(i).getLine(), tokens.get(i).getLine());
+            assertEquals(expected.get(i).getSymbol(), tokens.get(i).getSymbol());
+        }
+
+        Path file = Files.createTempFile("utf8", ".src");
+        try {
+            Files.write(file, bytes);
+            TokenBuffer buffer = Utf8Scanner.map(file).scanBuffer();
+            assertEquals(expected.size(), buffer.size());
+            for (int i = 0; i < buffer.size(); ++i) {
+                assertEquals(expected.get(i).getLexeme(), buffer.getText(i));
+                assertEquals(expected.get(i).getLexeme(), buffer.getLexeme(i).toString());
+                assertTrue(buffer.lexemeEquals(i, expected.get(i).getLexeme()));
+            }
+            assertEquals(4, buffer.getStart(1));
+            assertEquals(5, buffer.getLength(1));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void simpleTestEditRescansLocally() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 1000; ++i) {
+            source.append("var x").append(i).append(" = ").append(i).append(";\n");
+        }
+        SymbolTable symbols = new SymbolTable();
+        CharTokenBuffer tokens = new Scanner(source.toString().toCharArray(), symbols).scanBuffer();
+
+        int offset = source.indexOf("x500");
+        source.replace(offset, offset + 4, "y\n\"s\"");
+        assertEquals(3, tokens.edit(source.toString().toCharArray(), offset, 4, 5));
+        assertEqualTokens(new Scanner(source.toString().toCharArray(), symbols).scanBuffer(), tokens);
+        assertEquals(1002, tokens.getLine(tokens.size() - 1));
+
+        offset = source.indexOf("s\"") + 1;
+        source.deleteCharAt(offset);
+        tokens.edit(source.toString().toCharArray(), offset, 1, 0);
+        assertEquals(TokenType.STRING, tokens.getKind(tokens.size() - 2));
+        assertEqualTokens(new Scanner(source.toString().toCharArray(), symbols).scanBuffer(), tokens);
+    }
+
+    @Test
+    public void simpleTestEditKeepsEndAfterEofIdentifier() {
+        String source = "=1+! \"y\nz\"??\"eof";
+        SymbolTable symbols = new SymbolTable();
+        CharTokenBuffer tokens = new Scanner(source.toCharArray(), symbols).scanBuffer();
+
+        String edited = "=1+! \"y\nz?\"eof";
+        tokens.edit(edited.toCharArray(), 9, 2, 0);
+        assertEquals(TokenType.EOF, tokens.getKind(tokens.size() - 2));
+        assertEquals(edited.length(), tokens.getStart(tokens.size() - 1));
+        assertEqualTokens(new Scanner(edited.toCharArray(), symbols).scanBuffer(), tokens);
+    }
+
+    @Test
+    public void simpleTestEditReportsToScanDiagnostics() {
+        Diagnostics diagnostics = new Diagnostics();
+        CharTokenBuffer tokens = new Scanner("var a = 1;".toCharArray(), new SymbolTable(), diagnostics).scanBuffer();
+        assertEquals(0, diagnostics.getErrorCount());
+
+        tokens.edit("var a = #1;".toCharArray(), 8, 0, 1);
+        assertEquals(1, diagnostics.getErrorCount());
+        assertEquals(Diagnostic.Kind.UNKNOWN_CHARACTER, diagnostics.getDiagnostics().get(0).getKind());
+        assertEquals(8, diagnostics.getDiagnostics().get(0).getOffset());
+    }
+
+    @Test
+    public void simpleTestErrorsAreDiagnostics() {
+        char[] chars = "var a = 1;\n# b @;\nprint \"open".toCharArray();
+        Diagnostics diagnostics = new Diagnostics(2);
+        List<Token> tokens = new Scanner(chars, new SymbolTable(), diagnostics).scan();
+        assertEquals(10, tokens.size());
+        assertEquals(3, diagnostics.getErrorCount());
+        assertTrue(diagnostics.isFull());
+        assertEquals(2, diagnostics.getDiagnostics().size());
+
+        Diagnostic unknown = diagnostics.getDiagnostics().get(0);
+        assertEquals(Diagnostic.Kind.UNKNOWN_CHARACTER, unknown.getKind());
+        assertEquals(11, unknown.getOffset());
+        assertEquals(2, unknown.getLine());
+        assertEquals("Error occured at line 2 #: Unknown character", unknown.getMessage());
+        assertEquals(15, diagnostics.getDiagnostics().get(1).getOffset());
+
+        diagnostics = new Diagnostics();
+        new Scanner("print \"open".toCharArray(), new SymbolTable(), diagnostics).scan();
+        Diagnostic unclosed = diagnostics.getDiagnostics().get(0);
+        assertEquals(Diagnostic.Kind.UNCLOSED_STRING, unclosed.getKind());
+        assertEquals("Error occured at line 1 \"open: Unclosed string", unclosed.getMessage());
+    }
+
+    @Test
+    public void simpleTestUtf8ErrorsAreDiagnostics() {
+        byte[] bytes = "var é = #\"ö".getBytes(StandardCharsets.UTF_8);
+        Diagnostics diagnostics = new Diagnostics();
+        new Utf8Scanner(ByteBuffer.wrap(bytes), new SymbolTable(), diagnostics).scan();
+        assertEquals(2, diagnostics.getErrorCount());
+        assertEquals("Error occured at line 1 #: Unknown character", diagnostics.getDiagnostics().get(0).getMessage());
+
+        Diagnostic unclosed = diagnostics.getDiagnostics().get(1);
+        assertEquals(Diagnostic.Kind.UNCLOSED_STRING, unclosed.getKind());
+        assertEquals(10, unclosed.getOffset());
+        assertEquals("Error occured at line 1 \"ö: Unclosed string", unclosed.getMessage());
+    }
+
+    private static void assertEqualTokens(TokenBuffer expected, TokenBuffer tokens) {
+        assertEquals(expected.size(), tokens.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.getKind(i), tokens.getKind(i));
+            assertEquals(expected.getStart(i), tokens.getStart(i));
+            assertEquals(expected.getLength(i), tokens.getLength(i));
+            assertEquals(expected.getLine(i), tokens.getLine(i));
+            assertEquals(expected.getSymbol(i), tokens.getSymbol(i));
+        }
+    }
+}
@@ -6,6 +6,7 @@ import java.io.InputStreamReader;
 import java.util.stream.Collectors;
 import java.io.BufferedReader;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -17,7 +18,10 @@ import org.parser.core.lexic.Scanner;
 import org.parser.core.nodes.Expr;
 import org.parser.core.nodes.Stmt;
 import org.parser.token.Token;
+import org.parser.token.TokenSource;
 import org.parser.core.syntactic.Parser;
+import org.parser.error.Diagnostic;
+import org.parser.error.Diagnostics;
 
 public class ParserTest {
     @Test
@@ -135,4 +139,39 @@ public class ParserTest {
             assertTrue(statements.get(2) instanceof Stmt.BlockStmt);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void simpleTestParserPullsTokens() {
+        Scanner scanner = new Scanner("print 1; var a = 2; { a = a + 1; }".toCharArray());
+        int[] pulled = {0};
+        TokenSource source = () -> {
+            ++pulled[0];
+            return scanner.nextToken();
+        };
+        List<Integer> pulledPerStmt = new ArrayList<>();
+        List<Stmt> statements = new ArrayList<>();
+        new Parser(source).parseStmt(stmt -> {
+            statements.add(stmt);
+            pulledPerStmt.add(pulled[0]);
+        });
+        assertEquals(3, statements.size());
+        assertTrue(statements.get(0) instanceof Stmt.PrintStmt);
+        assertTrue(statements.get(1) instanceof Stmt.VarStmt);
+        assertTrue(statements.get(2) instanceof Stmt.BlockStmt);
+        assertEquals(4, (int) pulledPerStmt.get(0));
+    }
+
+    @Test
+    public void simpleTestSyntaxErrorsAreDiagnostics() {
+        Scanner scanner = new Scanner("var = 1; print 2; 3 = 4; print 5;".toCharArray());
+        Diagnostics diagnostics = new Diagnostics(10);
+        List<Stmt> statements = new Parser(scanner, diagnostics).parseStmt();
+        assertEquals(2, diagnostics.getErrorCount());
+        Diagnostic missingName = diagnostics.getDiagnostics().get(0);
+        assertEquals(Diagnostic.Kind.SYNTAX, missingName.getKind());
+        assertEquals("=", missingName.getToken().getLexeme());
+        assertEquals(1, missingName.getLine());
+        assertEquals("Invalid assignment target.", diagnostics.getDiagnostics().get(1).getText());
+        assertTrue(statements.stream().filter(stmt -> stmt instanceof Stmt.PrintStmt).count() == 2);
+    }
+}